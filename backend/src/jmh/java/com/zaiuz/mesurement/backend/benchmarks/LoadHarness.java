@@ -0,0 +1,264 @@
+package com.zaiuz.mesurement.backend.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load generator for a running backend. It creates its own series, ingests
+ * a configurable volume through {@code POST /api/measurement} (single or batch) and
+ * then issues random range queries through {@code GET /api/measurement}. Latency
+ * percentiles and throughput for each phase are written as one JSON document, together
+ * with the configuration, so runs can be diffed against each other.
+ *
+ * <p>Configured with system properties, see {@code ./gradlew loadTest -Dload.series=50 ...}:
+ * <ul>
+ *   <li>{@code load.baseUrl} (http://localhost:8080)</li>
+ *   <li>{@code load.series} number of series to create (10)</li>
+ *   <li>{@code load.pointsPerSeries} (10000)</li>
+ *   <li>{@code load.range} time span the points are spread over, ISO-8601 (P7D)</li>
+ *   <li>{@code load.ingest} {@code batch} or {@code single} (batch)</li>
+ *   <li>{@code load.batchSize} points per batch request (1000)</li>
+ *   <li>{@code load.queries} number of GET requests (1000)</li>
+ *   <li>{@code load.queryWindow} span of each query, ISO-8601 (PT6H)</li>
+ *   <li>{@code load.querySeries} series per query (1)</li>
+ *   <li>{@code load.pageSize} (500)</li>
+ *   <li>{@code load.concurrency} concurrent requests (16)</li>
+ *   <li>{@code load.cleanup} delete the created series afterwards (true)</li>
+ *   <li>{@code load.output} file the JSON report is written to; stdout only when unset</li>
+ * </ul>
+ */
+public class LoadHarness {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8080");
+    private final int seriesCount = Integer.getInteger("load.series", 10);
+    private final int pointsPerSeries = Integer.getInteger("load.pointsPerSeries", 10000);
+    private final Duration range = Duration.parse(System.getProperty("load.range", "P7D"));
+    private final boolean batchIngest = !"single".equals(System.getProperty("load.ingest", "batch"));
+    private final int batchSize = Integer.getInteger("load.batchSize", 1000);
+    private final int queries = Integer.getInteger("load.queries", 1000);
+    private final Duration queryWindow = Duration.parse(System.getProperty("load.queryWindow", "PT6H"));
+    private final int querySeries = Integer.getInteger("load.querySeries", 1);
+    private final int pageSize = Integer.getInteger("load.pageSize", 500);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final boolean cleanup = Boolean.parseBoolean(System.getProperty("load.cleanup", "true"));
+    private final String output = System.getProperty("load.output");
+
+    private final OffsetDateTime end = OffsetDateTime.now(ZoneOffset.UTC);
+    private final OffsetDateTime start = end.minus(range);
+    private final List<UUID> seriesIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        new LoadHarness().run();
+    }
+
+    private void run() throws Exception {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("startedAt", Instant.now().toString());
+        report.set("config", config());
+
+        createSeries();
+        try {
+            ObjectNode phases = report.putObject("phases");
+            phases.set("ingest", batchIngest ? ingestBatches() : ingestSingle());
+            phases.set("query", query());
+        } finally {
+            if (cleanup) deleteSeries();
+        }
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println(json);
+        if (output != null) {
+            Path path = Path.of(output);
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            Files.writeString(path, json);
+        }
+    }
+
+    private ObjectNode config() {
+        ObjectNode config = objectMapper.createObjectNode();
+        config.put("baseUrl", baseUrl);
+        config.put("series", seriesCount);
+        config.put("pointsPerSeries", pointsPerSeries);
+        config.put("range", range.toString());
+        config.put("ingest", batchIngest ? "batch" : "single");
+        config.put("batchSize", batchSize);
+        config.put("queries", queries);
+        config.put("queryWindow", queryWindow.toString());
+        config.put("querySeries", querySeries);
+        config.put("pageSize", pageSize);
+        config.put("concurrency", concurrency);
+        return config;
+    }
+
+    private void createSeries() throws IOException, InterruptedException {
+        String prefix = "load-" + Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < seriesCount; i++) {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("name", prefix + "-" + i);
+            body.put("color", "#4ECDC4");
+            body.put("minValue", -1000);
+            body.put("maxValue", 1000);
+            HttpResponse<byte[]> response = client.send(post("/api/series", body), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException("Creating series failed with HTTP " + response.statusCode());
+            }
+            seriesIds.add(UUID.fromString(objectMapper.readTree(response.body()).get("id").asText()));
+        }
+    }
+
+    private void deleteSeries() {
+        for (UUID id : seriesIds) {
+            try {
+                client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/series/" + id)).DELETE().build(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Could not delete series " + id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private ObjectNode ingestBatches() throws InterruptedException {
+        int batchesPerSeries = (pointsPerSeries + batchSize - 1) / batchSize;
+        int total = batchesPerSeries * seriesCount;
+        return runPhase(total, (long) seriesCount * pointsPerSeries, task -> {
+            UUID seriesId = seriesIds.get(task % seriesCount);
+            int first = (task / seriesCount) * batchSize;
+            int count = Math.min(batchSize, pointsPerSeries - first);
+            ArrayNode body = objectMapper.createArrayNode();
+            for (int i = 0; i < count; i++) {
+                body.add(point(seriesId, first + i));
+            }
+            return post("/api/measurement/batch", body);
+        });
+    }
+
+    private ObjectNode ingestSingle() throws InterruptedException {
+        return runPhase(seriesCount * pointsPerSeries, (long) seriesCount * pointsPerSeries,
+                task -> post("/api/measurement", point(seriesIds.get(task % seriesCount), task / seriesCount)));
+    }
+
+    private ObjectNode query() throws InterruptedException {
+        long spanSeconds = Math.max(1, range.minus(queryWindow).toSeconds());
+        return runPhase(queries, 0, task -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            OffsetDateTime from = start.plusSeconds(random.nextLong(spanSeconds));
+            StringBuilder uri = new StringBuilder("/api/measurement?size=").append(pageSize);
+            for (int i = 0; i < Math.min(querySeries, seriesCount); i++) {
+                uri.append("&seriesIds=").append(seriesIds.get(random.nextInt(seriesCount)));
+            }
+            uri.append("&from=").append(encode(from)).append("&to=").append(encode(from.plus(queryWindow)));
+            return HttpRequest.newBuilder(URI.create(baseUrl + uri)).GET().build();
+        });
+    }
+
+    private ObjectNode point(UUID seriesId, int index) {
+        ObjectNode point = objectMapper.createObjectNode();
+        point.put("seriesId", seriesId.toString());
+        point.put("value", Math.sin(index / 100.0) * 100 + ThreadLocalRandom.current().nextDouble(-5, 5));
+        point.put("timestamp", start.plus(range.multipliedBy(index).dividedBy(pointsPerSeries)).toString());
+        return point;
+    }
+
+    private ObjectNode runPhase(int tasks, long points, RequestFactory factory) throws InterruptedException {
+        long[] latencies = new long[tasks];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+
+        long phaseStart = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                workers.execute(() -> {
+                    int task;
+                    while ((task = next.getAndIncrement()) < tasks) {
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(factory.create(task),
+                                    HttpResponse.BodyHandlers.ofByteArray());
+                            bytes.addAndGet(response.body().length);
+                            if (response.statusCode() / 100 != 2) errors.incrementAndGet();
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[task] = System.nanoTime() - t0;
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - phaseStart) / 1e9;
+
+        Arrays.sort(latencies);
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("requests", tasks);
+        result.put("errors", errors.get());
+        result.put("durationSeconds", seconds);
+        result.put("requestsPerSecond", tasks / seconds);
+        if (points > 0) {
+            result.put("pointsPerSecond", points / seconds);
+        }
+        result.put("responseBytes", bytes.get());
+        ObjectNode latency = result.putObject("latencyMillis");
+        latency.put("p50", percentile(latencies, 0.50));
+        latency.put("p90", percentile(latencies, 0.90));
+        latency.put("p99", percentile(latencies, 0.99));
+        latency.put("p999", percentile(latencies, 0.999));
+        latency.put("max", tasks == 0 ? 0 : latencies[tasks - 1] / 1e6);
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private HttpRequest post(String path, JsonNode body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private static String encode(OffsetDateTime timestamp) {
+        return URLEncoder.encode(timestamp.toString(), StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create(int task) throws IOException;
+    }
+}
@@ -0,0 +1,61 @@
+package com.zaiuz.mesurement.backend.benchmarks;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.mappers.MeasurementMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(MappingBenchmark.ROWS)
+public class MappingBenchmark {
+    static final int ROWS = 1000;
+
+    private List<Measurement> measurements;
+    private ModelMapper modelMapper;
+    private MeasurementMapper measurementMapper;
+
+    @Setup
+    public void setUp() {
+        Series series = new Series(UUID.randomUUID(), "Temperatura", "#FF6B6B", -30, 60,
+                "system", OffsetDateTime.now(), OffsetDateTime.now());
+        OffsetDateTime start = OffsetDateTime.now().minusDays(1);
+        measurements = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            measurements.add(new Measurement(UUID.randomUUID(), series, Math.random() * 25, start.plusSeconds(i),
+                    "system", start, start));
+        }
+        modelMapper = new ModelMapper();
+        measurementMapper = new MeasurementMapper();
+    }
+
+    @Benchmark
+    public List<MeasurementDto> modelMapper() {
+        List<MeasurementDto> dtos = new ArrayList<>(ROWS);
+        for (Measurement m : measurements) {
+            dtos.add(modelMapper.map(m, MeasurementDto.class));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<MeasurementDto> measurementMapper() {
+        return measurementMapper.mapAll(measurements);
+    }
+}
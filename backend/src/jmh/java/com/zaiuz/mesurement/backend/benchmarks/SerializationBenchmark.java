@@ -0,0 +1,109 @@
+package com.zaiuz.mesurement.backend.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.formats.ColumnarMeasurementWriter;
+import com.zaiuz.mesurement.backend.formats.NdjsonMeasurementWriter;
+import com.zaiuz.mesurement.backend.mappers.MeasurementMapper;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per row of the response and request bodies on the query and batch ingest paths.
+ * The response benchmarks return the encoded size so it shows up next to the timing
+ * when comparing formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SerializationBenchmark.ROWS)
+public class SerializationBenchmark {
+    static final int ROWS = 1000;
+
+    private ObjectMapper objectMapper;
+    private Series series;
+    private List<Measurement> measurements;
+    private Page<MeasurementDto> page;
+    private byte[] batchJson;
+    private ByteArrayOutputStream buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same configuration Spring Boot applies to the ObjectMapper used by the controllers.
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        series = new Series(UUID.randomUUID(), "Temperatura", "#FF6B6B", -30, 60,
+                "system", OffsetDateTime.now(), OffsetDateTime.now());
+        OffsetDateTime start = OffsetDateTime.now().minusDays(1);
+        measurements = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            measurements.add(new Measurement(UUID.randomUUID(), series, Math.random() * 25, start.plusSeconds(i),
+                    "system", start, start));
+        }
+        List<MeasurementDto> dtos = new MeasurementMapper().mapAll(measurements);
+        page = new PageImpl<>(dtos, PageRequest.of(0, ROWS), ROWS * 10L);
+        batchJson = objectMapper.writeValueAsBytes(dtos);
+        buffer = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Benchmark
+    public int jsonPage() throws IOException {
+        buffer.reset();
+        objectMapper.writeValue(buffer, page);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int ndjson() throws IOException {
+        buffer.reset();
+        NdjsonMeasurementWriter format = new NdjsonMeasurementWriter();
+        Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8);
+        for (Measurement m : measurements) {
+            format.write(writer, m);
+        }
+        writer.flush();
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int columnar() throws IOException {
+        buffer.reset();
+        ColumnarMeasurementWriter writer = new ColumnarMeasurementWriter(buffer, List.of(series));
+        writer.beginSeries(0);
+        for (Measurement m : measurements) {
+            writer.accept(EpochMicros.of(m.getTimestamp()), m.getValue());
+        }
+        writer.finish();
+        return buffer.size();
+    }
+
+    @Benchmark
+    public List<MeasurementDto> jsonBatchRead() throws IOException {
+        return objectMapper.readValue(batchJson, new TypeReference<List<MeasurementDto>>() {
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package com.zaiuz.mesurement.backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold-start probe for the backend. Each run launches the application as a fresh process,
+ * polls {@code /actuator/health} until it answers 200 and then times the first and second
+ * request to each probed path, so the cost of lazy initialization (JIT, Hibernate, Jackson
+ * serializers, connection pool) shows up next to the startup time. The process is stopped
+ * before the next run. The report holds every run and the medians.
+ *
+ * <p>The backend needs a reachable database. Configured with system properties, see
+ * {@code ./gradlew startupTest -Dstartup.runs=5 ...}:
+ * <ul>
+ *   <li>{@code startup.command} command line that starts the backend (the built boot jar);
+ *       e.g. {@code java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar}
+ *       or {@code build/native/nativeCompile/backend} to compare modes</li>
+ *   <li>{@code startup.baseUrl} (http://localhost:8080)</li>
+ *   <li>{@code startup.runs} (3)</li>
+ *   <li>{@code startup.paths} comma-separated paths requested once ready (/api/series,/api/measurement?size=100)</li>
+ *   <li>{@code startup.timeout} time allowed to become ready, ISO-8601 (PT2M)</li>
+ *   <li>{@code startup.output} file the JSON report is written to; stdout only when unset</li>
+ * </ul>
+ */
+public class StartupProbe {
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private final List<String> command = Arrays.asList(System.getProperty("startup.command", "").trim().split("\\s+"));
+    private final String baseUrl = System.getProperty("startup.baseUrl", "http://localhost:8080");
+    private final int runs = Integer.getInteger("startup.runs", 3);
+    private final List<String> paths = Arrays.asList(
+            System.getProperty("startup.paths", "/api/series,/api/measurement?size=100").split(","));
+    private final Duration timeout = Duration.parse(System.getProperty("startup.timeout", "PT2M"));
+    private final String output = System.getProperty("startup.output");
+
+    public static void main(String[] args) throws Exception {
+        new StartupProbe().run();
+    }
+
+    private void run() throws Exception {
+        if (command.getFirst().isEmpty()) throw new IllegalArgumentException("startup.command is not set");
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("startedAt", Instant.now().toString());
+        ObjectNode config = report.putObject("config");
+        config.put("command", String.join(" ", command));
+        config.put("baseUrl", baseUrl);
+        config.put("runs", runs);
+        config.put("paths", String.join(",", paths));
+
+        ArrayNode results = report.putArray("runs");
+        double[] ready = new double[runs];
+        double[][] first = new double[paths.size()][runs];
+        for (int run = 0; run < runs; run++) {
+            ObjectNode result = probe();
+            results.add(result);
+            ready[run] = result.get("readyMillis").asDouble();
+            for (int p = 0; p < paths.size(); p++) {
+                first[p][run] = result.get("requests").get(p).get("firstMillis").asDouble();
+            }
+        }
+
+        ObjectNode median = report.putObject("median");
+        median.put("readyMillis", median(ready));
+        ObjectNode firstRequest = median.putObject("firstRequestMillis");
+        for (int p = 0; p < paths.size(); p++) {
+            firstRequest.put(paths.get(p), median(first[p]));
+        }
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println(json);
+        if (output != null) {
+            Path path = Path.of(output);
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            Files.writeString(path, json);
+        }
+    }
+
+    private ObjectNode probe() throws IOException, InterruptedException {
+        ObjectNode result = objectMapper.createObjectNode();
+        double[] reported = {Double.NaN};
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) reported[0] = Double.parseDouble(matcher.group(1));
+                }
+            } catch (IOException ignored) {
+                // the process went away
+            }
+        });
+        try {
+            awaitReady(process, start);
+            result.put("readyMillis", (System.nanoTime() - start) / 1e6);
+            result.put("reportedStartupSeconds", reported[0]);
+            rssKilobytes(process).ifPresent(rss -> result.put("rssKilobytes", rss));
+
+            ArrayNode requests = result.putArray("requests");
+            for (String path : paths) {
+                ObjectNode request = requests.addObject();
+                request.put("path", path);
+                request.put("firstMillis", time(path));
+                request.put("secondMillis", time(path));
+            }
+            return result;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private void awaitReady(Process process, long start) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).GET().build();
+        while (System.nanoTime() - start < timeout.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Backend exited with code " + process.exitValue() + " before ready");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Backend not ready within " + timeout);
+    }
+
+    private double time(String path) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        double millis = (System.nanoTime() - t0) / 1e6;
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("GET " + path + " failed with HTTP " + response.statusCode());
+        }
+        return millis;
+    }
+
+    // Resident set size of the started process on Linux; the launched command may be a wrapper, so it is indicative.
+    private static Optional<Long> rssKilobytes(Process process) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+                if (line.startsWith("VmRSS:")) return Optional.of(Long.parseLong(line.replaceAll("\\D", "")));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux, or the process is gone
+        }
+        return Optional.empty();
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+}
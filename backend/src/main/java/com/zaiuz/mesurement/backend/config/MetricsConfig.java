@@ -0,0 +1,47 @@
+package com.zaiuz.mesurement.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public StatementMonitor statementMonitor(MeterRegistry meterRegistry,
+                                             @Value("${measurement.slow-query.threshold:PT0.2S}") Duration threshold,
+                                             @Value("${measurement.slow-query.sample-rate:1.0}") double sampleRate) {
+        return new StatementMonitor(meterRegistry, threshold, sampleRate);
+    }
+
+    @Bean
+    public StatementCountInterceptor statementCountInterceptor(StatementMonitor statementMonitor, MeterRegistry meterRegistry,
+                                                               @Value("${measurement.statements.per-request-warn:50}") int warnThreshold) {
+        return new StatementCountInterceptor(statementMonitor, meterRegistry, warnThreshold);
+    }
+
+    // Static so that registering the post-processor does not instantiate this configuration early.
+    @Bean
+    public static BeanPostProcessor statementMonitoringDataSourcePostProcessor(ObjectProvider<StatementMonitor> statementMonitor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(statementMonitor.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
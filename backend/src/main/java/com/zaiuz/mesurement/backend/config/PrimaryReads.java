@@ -0,0 +1,38 @@
+package com.zaiuz.mesurement.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs reads that must see the latest committed state, such as loads that fill a cache,
+ * on the primary. Without a replica every read goes there anyway and the action runs in
+ * place, as it does inside a read-write transaction. Otherwise it runs in a read-write
+ * transaction of its own, which {@link ReplicaRoutingDataSource} sends to the primary;
+ * a read-only transaction of the caller is suspended meanwhile.
+ */
+@Component
+public class PrimaryReads {
+    private final TransactionTemplate primary;
+    private final boolean replicaEnabled;
+
+    public PrimaryReads(PlatformTransactionManager transactionManager,
+                        @Value("${measurement.replica.enabled:false}") boolean replicaEnabled) {
+        this.primary = new TransactionTemplate(transactionManager);
+        this.primary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.replicaEnabled = replicaEnabled;
+    }
+
+    public <T> T get(Supplier<T> read) {
+        if (!replicaEnabled || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return read.get();
+        }
+        return primary.execute(status -> read.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.zaiuz.mesurement.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Replaces the auto-configured pool with a primary and a replica pool behind
+ * {@link ReplicaRoutingDataSource}. Both pools are built here rather than exposed as
+ * beans, so there is still exactly one DataSource in the context and the statement
+ * monitoring proxy wraps the routing layer once instead of each pool.
+ *
+ * <p>The primary takes {@code spring.datasource.*} and {@code spring.datasource.hikari.*};
+ * the replica takes {@code measurement.replica.*}, with credentials defaulting to the
+ * primary's and pool settings under {@code measurement.replica.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "measurement.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${measurement.replica.url}") String replicaUrl,
+                                 @Value("${measurement.replica.max-lag:PT10S}") Duration maxLag,
+                                 @Value("${measurement.replica.check-interval:PT5S}") Duration checkInterval) {
+        Binder binder = Binder.get(environment);
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(metrics);
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(replicaUrl);
+        replica.setUsername(binder.bind("measurement.replica.username", String.class)
+                .orElse(properties.determineUsername()));
+        replica.setPassword(binder.bind("measurement.replica.password", String.class)
+                .orElse(properties.determinePassword()));
+        binder.bind("measurement.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        replica.setMetricsTrackerFactory(metrics);
+
+        return new RoutingDataSource(new ReplicaRoutingDataSource(primary, replica, maxLag, checkInterval,
+                meterRegistry));
+    }
+
+    // Closing the context closes both pools through this proxy, also when it is wrapped for monitoring.
+    public static class RoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+        private final ReplicaRoutingDataSource routing;
+
+        RoutingDataSource(ReplicaRoutingDataSource routing) {
+            super(routing);
+            this.routing = routing;
+        }
+
+        @Override
+        public void close() throws IOException {
+            routing.close();
+        }
+    }
+}
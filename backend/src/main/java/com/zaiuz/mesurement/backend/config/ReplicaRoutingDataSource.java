@@ -0,0 +1,116 @@
+package com.zaiuz.mesurement.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and everything else
+ * to the primary. It has to sit behind a LazyConnectionDataSourceProxy: the transaction
+ * manager opens the connection before the read-only flag is visible, and the proxy
+ * delays that until the first statement.
+ *
+ * <p>The replica is used only while its last health check passed and, if a maximum lag
+ * is set, reported a lag below it. Checks run at most once per interval, triggered by
+ * routing itself on a virtual thread, so a slow or dead replica never blocks a request:
+ * until a check succeeds, reads go to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+    // Zero when the replica has replayed everything it received, so an idle primary does not read as lag.
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(extract(epoch FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+    private static final int CHECK_TIMEOUT_SECONDS = 5;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration maxLag;
+    private final long checkIntervalNanos;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile boolean replicaUsable;
+    private volatile double lagSeconds = Double.NaN;
+    private volatile long lastCheckNanos;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag, Duration checkInterval,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.checkIntervalNanos = checkInterval.toNanos();
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+        Gauge.builder("measurement.replica.lag", this, ds -> ds.lagSeconds).baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("measurement.replica.usable", this, ds -> ds.replicaUsable ? 1 : 0)
+                .register(meterRegistry);
+        this.lastCheckNanos = System.nanoTime() - checkIntervalNanos;
+        scheduleCheck();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) return PRIMARY;
+        scheduleCheck();
+        return replicaUsable ? REPLICA : PRIMARY;
+    }
+
+    private void scheduleCheck() {
+        if (System.nanoTime() - lastCheckNanos < checkIntervalNanos) return;
+        if (!checking.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("replica-lag-check").start(() -> {
+            try {
+                check();
+            } finally {
+                lastCheckNanos = System.nanoTime();
+                checking.set(false);
+            }
+        });
+    }
+
+    private void check() {
+        boolean wasUsable = replicaUsable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                lagSeconds = rs.getDouble(1);
+            }
+            replicaUsable = maxLag == null || lagSeconds * 1000 <= maxLag.toMillis();
+            if (wasUsable && !replicaUsable) {
+                log.warn("Replica lag {}s exceeds {}, reading from primary", lagSeconds, maxLag);
+            }
+        } catch (Exception e) {
+            replicaUsable = false;
+            lagSeconds = Double.NaN;
+            if (wasUsable) log.warn("Replica check failed, reading from primary: {}", e.getMessage());
+        }
+        if (!wasUsable && replicaUsable) log.info("Reading from replica (lag {}s)", lagSeconds);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : new DataSource[]{replica, primary}) {
+            if (pool instanceof Closeable closeable) closeable.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.zaiuz.mesurement.backend.config;
+
+import com.zaiuz.mesurement.backend.repositories.MeasurementShards;
+import com.zaiuz.mesurement.backend.repositories.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measurement shards: the application DataSource is shard 0 and every URL in
+ * {@code measurement.shards.urls} adds one more, in order. Credentials default to the
+ * primary's ({@code measurement.shards.username/password}) and pool settings come from
+ * {@code measurement.shards.hikari.*}. Without URLs there is a single shard and every
+ * query runs exactly as before.
+ *
+ * <p>The order of the URLs is the shard index and must not change once data is written;
+ * appending a shard moves about 1 / N of the series, whose rows have to be migrated
+ * before the new layout is used.
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public MeasurementShards measurementShards(JdbcTemplate jdbcTemplate, DataSourceProperties properties,
+                                               Environment environment, MeterRegistry meterRegistry,
+                                               @Value("${measurement.shards.urls:}") List<String> urls,
+                                               @Value("${measurement.shards.virtual-nodes:128}") int virtualNodes) {
+        if (urls.isEmpty()) return MeasurementShards.single(jdbcTemplate);
+
+        Binder binder = Binder.get(environment);
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        List<JdbcTemplate> templates = new ArrayList<>();
+        List<HikariDataSource> pools = new ArrayList<>();
+        templates.add(jdbcTemplate);
+        for (String url : urls) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(binder.bind("measurement.shards.username", String.class)
+                    .orElse(properties.determineUsername()));
+            pool.setPassword(binder.bind("measurement.shards.password", String.class)
+                    .orElse(properties.determinePassword()));
+            binder.bind("measurement.shards.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("shard-" + templates.size());
+            pool.setMetricsTrackerFactory(metrics);
+            pools.add(pool);
+            templates.add(new JdbcTemplate(pool));
+        }
+        return new MeasurementShards(templates, pools, new ShardRouter(templates.size(), virtualNodes));
+    }
+}
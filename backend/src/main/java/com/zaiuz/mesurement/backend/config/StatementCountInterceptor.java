@@ -0,0 +1,60 @@
+package com.zaiuz.mesurement.backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records how many JDBC statements each request ran, per URI pattern, and warns when a
+ * request goes over the limit, which usually means a lazy association is being loaded
+ * row by row. Streaming responses are only counted up to the point where the handler
+ * returns.
+ */
+public class StatementCountInterceptor implements AsyncHandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(StatementCountInterceptor.class);
+
+    private final StatementMonitor statementMonitor;
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public StatementCountInterceptor(StatementMonitor statementMonitor, MeterRegistry meterRegistry, int warnThreshold) {
+        this.statementMonitor = statementMonitor;
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statementMonitor.beginRequest();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        record(request, statementMonitor.endRequest());
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        record(request, statementMonitor.endRequest());
+    }
+
+    private void record(HttpServletRequest request, int statements) {
+        if (statements < 0) return;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("http.server.requests.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statements);
+        if (statements > warnThreshold) {
+            log.warn("{} {} ran {} statements, possible N+1", request.getMethod(), uri, statements);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.zaiuz.mesurement.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sees every JDBC statement, whether it comes from Hibernate or from JdbcTemplate.
+ * Statements slower than the threshold are counted and a sample of them is logged.
+ * The monitor also counts statements per request so that {@link StatementCountInterceptor}
+ * can spot N+1 patterns.
+ */
+public class StatementMonitor implements QueryExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger("measurement.slow-query");
+    private static final int MAX_LOGGED_SQL = 2000;
+
+    private final ThreadLocal<int[]> requestStatements = new ThreadLocal<>();
+    private final long thresholdMillis;
+    private final double sampleRate;
+    private final Counter slowStatements;
+
+    public StatementMonitor(MeterRegistry meterRegistry, Duration threshold, double sampleRate) {
+        this.thresholdMillis = threshold.toMillis();
+        this.sampleRate = sampleRate;
+        this.slowStatements = Counter.builder("jdbc.statements.slow")
+                .description("Statements that took longer than measurement.slow-query.threshold")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        int[] count = requestStatements.get();
+        if (count != null) count[0]++;
+
+        long elapsed = execInfo.getElapsedTime();
+        if (elapsed < thresholdMillis) return;
+        slowStatements.increment();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        if (sql.length() > MAX_LOGGED_SQL) sql = sql.substring(0, MAX_LOGGED_SQL) + "...";
+        if (execInfo.isBatch()) {
+            log.warn("Slow statement: {} ms, batch of {}: {}", elapsed, execInfo.getBatchSize(), sql);
+        } else {
+            log.warn("Slow statement: {} ms: {}", elapsed, sql);
+        }
+    }
+
+    public void beginRequest() {
+        requestStatements.set(new int[1]);
+    }
+
+    /**
+     * @return statements run on this thread since {@link #beginRequest()}, or -1 if
+     * counting was not started
+     */
+    public int endRequest() {
+        int[] count = requestStatements.get();
+        requestStatements.remove();
+        return count == null ? -1 : count[0];
+    }
+}
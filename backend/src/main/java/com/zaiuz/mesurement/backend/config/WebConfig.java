@@ -0,0 +1,19 @@
+package com.zaiuz.mesurement.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final StatementCountInterceptor statementCountInterceptor;
+
+    public WebConfig(StatementCountInterceptor statementCountInterceptor) {
+        this.statementCountInterceptor = statementCountInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(statementCountInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,63 @@
+package com.zaiuz.mesurement.backend.controllers;
+
+import com.zaiuz.mesurement.backend.domain.dto.AlertEventDto;
+import com.zaiuz.mesurement.backend.domain.dto.AlertRuleDto;
+import com.zaiuz.mesurement.backend.services.AlertService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+    private static final int MAX_EVENTS = 1000;
+
+    private final AlertService alertService;
+
+    public AlertController(AlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @GetMapping(path = "/rules")
+    public ResponseEntity<List<AlertRuleDto>> getRules() {
+        return ResponseEntity.ok(alertService.getRules());
+    }
+
+    @PostMapping(path = "/rules")
+    public ResponseEntity<AlertRuleDto> createRule(@RequestBody AlertRuleDto rule) {
+        try {
+            return new ResponseEntity<>(alertService.addRule(rule), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @DeleteMapping(path = "/rules/{id}")
+    public ResponseEntity deleteRule(@PathVariable UUID id) {
+        if (!alertService.removeRule(id)) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
+    // Poll with after set to the last id seen to get only new events.
+    @GetMapping(path = "/events")
+    public ResponseEntity<List<AlertEventDto>> getEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(required = false) UUID seriesId,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit < 1 || limit > MAX_EVENTS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(alertService.getEvents(after, seriesId, limit));
+    }
+
+    @GetMapping(path = "/active")
+    public ResponseEntity<List<AlertEventDto>> getActive() {
+        return ResponseEntity.ok(alertService.getActive());
+    }
+}
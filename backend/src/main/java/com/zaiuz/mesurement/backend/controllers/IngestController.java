@@ -0,0 +1,73 @@
+package com.zaiuz.mesurement.backend.controllers;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.dto.AsyncIngestResultDto;
+import com.zaiuz.mesurement.backend.domain.dto.BatchResultDto;
+import com.zaiuz.mesurement.backend.domain.dto.IngestStatusDto;
+import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.mappers.MeasurementMapper;
+import com.zaiuz.mesurement.backend.services.IngestQueue;
+import com.zaiuz.mesurement.backend.services.MeasurementService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/measurement/async")
+@ConditionalOnProperty(name = "measurement.ingest.async.enabled", havingValue = "true")
+public class IngestController {
+    private final MeasurementService measurementService;
+    private final IngestQueue ingestQueue;
+    private final MeasurementMapper measurementMapper;
+    private final int maxBatchItems;
+    private final long retryAfterSeconds;
+
+    public IngestController(MeasurementService measurementService, IngestQueue ingestQueue,
+                            MeasurementMapper measurementMapper,
+                            @Value("${measurement.batch.max-items:100000}") int maxBatchItems,
+                            @Value("${measurement.ingest.async.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.measurementService = measurementService;
+        this.ingestQueue = ingestQueue;
+        this.measurementMapper = measurementMapper;
+        this.maxBatchItems = maxBatchItems;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @PostMapping
+    public ResponseEntity<AsyncIngestResultDto> ingest(@RequestBody List<MeasurementDto> measurementDtos) {
+        if (measurementDtos.size() > maxBatchItems) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        List<Measurement> measurements = new ArrayList<>(measurementDtos.size());
+        for (MeasurementDto dto : measurementDtos) {
+            measurements.add(dto == null ? null : measurementMapper.mapFrom(dto));
+        }
+        List<Measurement> accepted = new ArrayList<>(measurements.size());
+        BatchResultDto result = measurementService.prepare(measurements, accepted);
+        // Retrying would not help, the queue never has room for more than its capacity.
+        if (accepted.size() > ingestQueue.capacity()) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        long sequence = ingestQueue.offer(accepted);
+        if (sequence < 0) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return new ResponseEntity<>(headers, HttpStatus.TOO_MANY_REQUESTS);
+        }
+        return new ResponseEntity<>(new AsyncIngestResultDto(sequence, result.getAccepted(),
+                result.getRejected(), result.getErrors()), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping(path = "/status")
+    public ResponseEntity<IngestStatusDto> status() {
+        return ResponseEntity.ok(ingestQueue.status());
+    }
+}
@@ -1,52 +1,307 @@
 package com.zaiuz.mesurement.backend.controllers;
 
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
 import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
 import com.zaiuz.mesurement.backend.domain.Series;
 import com.zaiuz.mesurement.backend.domain.User;
+import com.zaiuz.mesurement.backend.domain.dto.AlignedMatrixDto;
+import com.zaiuz.mesurement.backend.domain.dto.BatchResultDto;
+import com.zaiuz.mesurement.backend.domain.dto.BulkResultDto;
+import com.zaiuz.mesurement.backend.domain.dto.CursorPageDto;
 import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesAggregatesDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesPointsDto;
 import com.zaiuz.mesurement.backend.domain.dto.SeriesDto;
 import com.zaiuz.mesurement.backend.domain.dto.UserDto;
+import com.zaiuz.mesurement.backend.domain.dto.ValueCorrectionDto;
+import com.zaiuz.mesurement.backend.formats.ColumnarMeasurementWriter;
+import com.zaiuz.mesurement.backend.formats.MeasurementExportWriter;
+import com.zaiuz.mesurement.backend.mappers.MeasurementMapper;
+import com.zaiuz.mesurement.backend.services.LiveMeasurementHub;
 import com.zaiuz.mesurement.backend.services.MeasurementService;
+import com.zaiuz.mesurement.backend.services.SeriesChangeTracker;
 import com.zaiuz.mesurement.backend.services.UserService;
+import com.zaiuz.mesurement.backend.timeseries.GapFill;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/measurement")
 public class MeasurementController {
     private final MeasurementService measurementService;
-    private final ModelMapper modelMapper;
+    private final MeasurementMapper measurementMapper;
+    private final LiveMeasurementHub liveMeasurementHub;
+    private final SeriesChangeTracker changeTracker;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchItems;
+    private final int maxAlignedBuckets;
+    private final int maxDownsampleBuckets;
 
-    public MeasurementController(MeasurementService measurementService) {
+    public MeasurementController(MeasurementService measurementService, MeasurementMapper measurementMapper,
+                                 LiveMeasurementHub liveMeasurementHub, SeriesChangeTracker changeTracker,
+                                 ObjectMapper objectMapper,
+                                 @Value("${measurement.batch.max-items:100000}") int maxBatchItems,
+                                 @Value("${measurement.aligned.max-buckets:10000}") int maxAlignedBuckets,
+                                 @Value("${measurement.downsample.max-buckets:10000}") int maxDownsampleBuckets) {
         this.measurementService = measurementService;
-        this.modelMapper = new ModelMapper();
+        this.measurementMapper = measurementMapper;
+        this.liveMeasurementHub = liveMeasurementHub;
+        this.changeTracker = changeTracker;
+        this.objectMapper = objectMapper;
+        this.maxBatchItems = maxBatchItems;
+        this.maxAlignedBuckets = maxAlignedBuckets;
+        this.maxDownsampleBuckets = maxDownsampleBuckets;
     }
 
+    @Transactional(readOnly = true)
     @GetMapping
     public ResponseEntity<Page<MeasurementDto>> query(
             @RequestParam(required = false) List<UUID> seriesIds,
             @RequestParam(required = false) OffsetDateTime from,
             @RequestParam(required = false) OffsetDateTime to,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "100") int size) {
+            @RequestParam(defaultValue = "100") int size,
+            WebRequest webRequest) {
 
-        Page<Measurement> measurementPage = measurementService.query(seriesIds, from, to, PageRequest.of(page, size, Sort.by("timestamp").ascending()));
-        Page<MeasurementDto> dtoPage = measurementPage.map(m -> modelMapper.map(m, MeasurementDto.class));
+        String etag = etag(seriesIds, from, to, "page");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        Page<MeasurementView> measurementPage = measurementService.query(seriesIds, from, to, PageRequest.of(page, size, Sort.by("timestamp").ascending()));
+        Page<MeasurementDto> dtoPage = measurementMapper.mapViews(measurementPage);
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to)).body(dtoPage);
+    }
+
+    @GetMapping(produces = ColumnarMeasurementWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> queryColumnar(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            WebRequest webRequest) {
+
+        List<Series> series = measurementService.resolveSeries(seriesIds);
+        String etag = changeTracker.etag(series.stream().map(Series::getId).toList(), from, to, "columnar");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        OffsetDateTime until = to != null ? to : OffsetDateTime.now();
+        StreamingResponseBody body = outputStream -> {
+            ColumnarMeasurementWriter writer = new ColumnarMeasurementWriter(outputStream, series);
+            for (int i = 0; i < series.size(); i++) {
+                writer.beginSeries(i);
+                measurementService.scanPrimary(series.get(i).getId(), from, until, writer);
+            }
+            writer.finish();
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, ColumnarMeasurementWriter.MEDIA_TYPE);
+        headers.setETag(etag);
+        headers.setCacheControl(changeTracker.cacheControl(to));
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping(params = {"after", "!maxPoints", "!bucket"})
+    public ResponseEntity<CursorPageDto<MeasurementDto>> queryAfter(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "100") int size,
+            WebRequest webRequest) {
+
+        if (size < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = etag(seriesIds, from, to, "cursor");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        CursorPageDto<Measurement> page;
+        try {
+            page = measurementService.scroll(seriesIds, from, to, after, size);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<MeasurementDto> content = measurementMapper.mapAll(page.getContent());
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to))
+                .body(new CursorPageDto<>(content, page.getSize(), page.getNext()));
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping(params = "maxPoints")
+    public ResponseEntity<List<SeriesPointsDto>> queryDownsampled(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam int maxPoints,
+            @RequestParam(defaultValue = MeasurementService.MODE_MINMAX) String mode,
+            WebRequest webRequest) {
+
+        if (maxPoints < 1 || maxPoints > maxDownsampleBuckets || !isDownsamplingMode(mode)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = etag(seriesIds, from, to, "points");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to))
+                .body(measurementService.downsample(seriesIds, from, to, maxPoints, null, mode));
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping(params = {"bucket", "!maxPoints"})
+    public ResponseEntity<List<SeriesPointsDto>> queryBucketed(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam String bucket,
+            WebRequest webRequest) {
+
+        Duration bucketDuration;
+        try {
+            bucketDuration = Duration.parse(bucket);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (bucketDuration.isNegative() || bucketDuration.isZero()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = etag(seriesIds, from, to, "points");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        List<SeriesPointsDto> points;
+        try {
+            points = measurementService.downsample(seriesIds, from, to, maxDownsampleBuckets, bucketDuration,
+                    MeasurementService.MODE_MINMAX);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to)).body(points);
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping(path = "/aggregate")
+    public ResponseEntity<List<SeriesAggregatesDto>> aggregate(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam(required = false) String step,
+            @RequestParam(defaultValue = "1000") int maxPoints,
+            WebRequest webRequest) {
 
-        return ResponseEntity.ok(dtoPage);
+        Duration stepDuration = null;
+        if (step != null) {
+            try {
+                stepDuration = Duration.parse(step);
+            } catch (DateTimeParseException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (stepDuration.isNegative() || stepDuration.isZero()) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+        if (maxPoints < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = etag(seriesIds, from, to, "aggregate");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to))
+                .body(measurementService.aggregate(seriesIds, from, to, stepDuration, maxPoints));
+    }
+
+    @Transactional(readOnly = true)
+    @GetMapping(path = "/aligned")
+    public ResponseEntity<AlignedMatrixDto> aligned(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam(required = false) String step,
+            @RequestParam(defaultValue = "1000") int maxPoints,
+            @RequestParam(defaultValue = "null") String fill,
+            WebRequest webRequest) {
+
+        GapFill gapFill = GapFill.parse(fill);
+        if (gapFill == null || maxPoints < 1 || maxPoints > maxAlignedBuckets) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Duration stepDuration = null;
+        if (step != null) {
+            try {
+                stepDuration = Duration.parse(step);
+            } catch (DateTimeParseException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (stepDuration.isNegative() || stepDuration.isZero()) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        String etag = etag(seriesIds, from, to, "aligned");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to))
+                    .body(measurementService.aligned(seriesIds, from, to, stepDuration, maxPoints, gapFill));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Tagged reads run in one read-only transaction, so the tag and the body come from the same
+    // database even when reads go to a replica.
+    private String etag(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to, String representation) {
+        List<UUID> ids = measurementService.resolveSeries(seriesIds).stream().map(Series::getId).toList();
+        return changeTracker.etag(ids, from, to, representation);
+    }
+
+    private static boolean isDownsamplingMode(String mode) {
+        return MeasurementService.MODE_MINMAX.equals(mode) || MeasurementService.MODE_LTTB.equals(mode);
     }
 //
 //    @GetMapping
@@ -57,11 +312,58 @@ public class MeasurementController {
 //                .collect(Collectors.toList()), HttpStatus.OK);
 //    }
 
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> live(@RequestParam(required = false) List<UUID> seriesIds) {
+        SseEmitter emitter = liveMeasurementHub.subscribe(seriesIds);
+        if (emitter == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) List<UUID> seriesIds,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        MeasurementExportWriter exportWriter = MeasurementExportWriter.forFormat(format);
+        if (exportWriter == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(outputStream, 8192, true) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            exportWriter.writeHeader(writer);
+            writer.flush();
+            measurementService.export(seriesIds, from, to, m -> {
+                try {
+                    exportWriter.write(writer, m);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.close();
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, exportWriter.contentType() + ";charset=UTF-8");
+        headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"measurements." + exportWriter.fileExtension() + "\"");
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
     @GetMapping(path = "/{id}")
     public ResponseEntity<MeasurementDto> getMeasurement(@PathVariable UUID id) {
-        Optional<Measurement> foundMeasurement = measurementService.get(id);
+        Optional<MeasurementView> foundMeasurement = measurementService.get(id);
         return foundMeasurement.map(m -> {
-            MeasurementDto measurementDto = modelMapper.map(m, MeasurementDto.class);
+            MeasurementDto measurementDto = measurementMapper.mapTo(m);
             return new ResponseEntity<>(measurementDto, HttpStatus.OK);
         }).orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
@@ -69,24 +371,156 @@ public class MeasurementController {
 
     @PostMapping
     public ResponseEntity<MeasurementDto> createMeasurement(@RequestBody @Valid MeasurementDto measurementDto) {
-        Measurement measurement = measurementService.create(modelMapper.map(measurementDto, Measurement.class));
-        return new ResponseEntity<>(modelMapper.map(measurement, MeasurementDto.class), HttpStatus.CREATED);
+        Measurement measurement;
+        try {
+            measurement = measurementService.create(measurementMapper.mapFrom(measurementDto));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(measurementMapper.mapTo(measurement), HttpStatus.CREATED);
+    }
+
+    @PostMapping(path = "/batch", consumes = "application/json")
+    public ResponseEntity<BatchResultDto> createMeasurements(
+            @RequestBody List<MeasurementDto> measurementDtos,
+            @RequestParam(defaultValue = "ignore") String onConflict) {
+
+        ConflictPolicy policy = ConflictPolicy.parse(onConflict);
+        if (policy == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (measurementDtos.size() > maxBatchItems) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        List<Measurement> measurements = new ArrayList<>(measurementDtos.size());
+        for (MeasurementDto dto : measurementDtos) {
+            measurements.add(dto == null ? null : measurementMapper.mapFrom(dto));
+        }
+        return writeBatch(measurements, policy);
+    }
+
+    @PostMapping(path = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<BatchResultDto> createMeasurementsNdjson(
+            InputStream body,
+            @RequestParam(defaultValue = "ignore") String onConflict) throws IOException {
+
+        ConflictPolicy policy = ConflictPolicy.parse(onConflict);
+        if (policy == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<Measurement> measurements = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            if (measurements.size() == maxBatchItems) {
+                return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+
+            try {
+                MeasurementDto dto = objectMapper.readValue(line, MeasurementDto.class);
+                measurements.add(measurementMapper.mapFrom(dto));
+            } catch (JsonProcessingException e) {
+                measurements.add(null);
+            }
+        }
+        return writeBatch(measurements, policy);
+    }
+
+    private ResponseEntity<BatchResultDto> writeBatch(List<Measurement> measurements, ConflictPolicy policy) {
+        try {
+            return new ResponseEntity<>(measurementService.createAll(measurements, policy), HttpStatus.OK);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
     }
 
     @PutMapping(path = "/{id}")
     public ResponseEntity<MeasurementDto> updateMeasurement(@PathVariable UUID id, @RequestBody @Valid MeasurementDto measurementDto) {
-        if(measurementService.get(id).isEmpty()) {
+        Measurement measurementDetails = measurementMapper.mapFrom(measurementDto);
+        Measurement measurement;
+        try {
+            measurement = measurementService.update(id, measurementDetails);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (DuplicateKeyException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        if (measurement == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-
-        Measurement measurementDetails = modelMapper.map(measurementDto, Measurement.class);
-        Measurement measurement = measurementService.update(id, modelMapper.map(measurementDto, Measurement.class));
-        return new ResponseEntity<>(modelMapper.map(measurement, MeasurementDto.class), HttpStatus.CREATED);
+        return new ResponseEntity<>(measurementMapper.mapTo(measurement), HttpStatus.CREATED);
     }
 
     @DeleteMapping(path = "/{id}")
     public ResponseEntity deleteMeasurement(@PathVariable UUID id) {
-        measurementService.delete(id);
+        if (!measurementService.delete(id)) {
+            return new ResponseEntity(HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
+
+    @DeleteMapping(params = "seriesId")
+    public ResponseEntity<BulkResultDto> deleteRange(
+            @RequestParam UUID seriesId,
+            @RequestParam OffsetDateTime from,
+            @RequestParam OffsetDateTime to) {
+
+        if (!to.isAfter(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (measurementService.resolveSeries(List.of(seriesId)).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(new BulkResultDto(measurementService.deleteRange(seriesId, from, to)));
+    }
+
+    @PatchMapping(params = "seriesId")
+    public ResponseEntity<BulkResultDto> correctRange(
+            @RequestParam UUID seriesId,
+            @RequestParam OffsetDateTime from,
+            @RequestParam OffsetDateTime to,
+            @RequestBody ValueCorrectionDto correction) {
+
+        if (!to.isAfter(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<Series> series = measurementService.resolveSeries(List.of(seriesId));
+        if (series.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        double scale;
+        double offset;
+        if (correction.getSet() != null) {
+            if (correction.getScale() != null || correction.getOffset() != null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            double value = correction.getSet();
+            if (value < series.get(0).getMinValue() || value > series.get(0).getMaxValue()) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            scale = 0;
+            offset = value;
+        } else {
+            if (correction.getScale() == null && correction.getOffset() == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            scale = correction.getScale() != null ? correction.getScale() : 1;
+            offset = correction.getOffset() != null ? correction.getOffset() : 0;
+        }
+        if (!Double.isFinite(scale) || !Double.isFinite(offset)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        long corrected;
+        try {
+            corrected = measurementService.correctRange(seriesId, from, to, scale, offset);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(new BulkResultDto(corrected));
+    }
 }
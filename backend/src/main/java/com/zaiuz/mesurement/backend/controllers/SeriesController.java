@@ -2,49 +2,102 @@ package com.zaiuz.mesurement.backend.controllers;
 
 import com.zaiuz.mesurement.backend.domain.Series;
 import com.zaiuz.mesurement.backend.domain.dto.SeriesDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesStatsDto;
+import com.zaiuz.mesurement.backend.mappers.SeriesMapper;
+import com.zaiuz.mesurement.backend.services.SeriesChangeTracker;
 import com.zaiuz.mesurement.backend.services.SeriesService;
-import org.modelmapper.ModelMapper;
+import com.zaiuz.mesurement.backend.services.SeriesStatsService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/series")
 public class SeriesController {
     private final SeriesService seriesService;
-    private final ModelMapper modelMapper;
+    private final SeriesStatsService seriesStatsService;
+    private final SeriesChangeTracker changeTracker;
+    private final SeriesMapper seriesMapper;
 
-    public SeriesController(SeriesService seriesService) {
+    public SeriesController(SeriesService seriesService, SeriesStatsService seriesStatsService,
+                            SeriesChangeTracker changeTracker, SeriesMapper seriesMapper) {
         this.seriesService = seriesService;
-        this.modelMapper = new ModelMapper();
+        this.seriesStatsService = seriesStatsService;
+        this.changeTracker = changeTracker;
+        this.seriesMapper = seriesMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<SeriesDto>> getSeries() {
+    public ResponseEntity<List<SeriesDto>> getSeries(WebRequest webRequest) {
+        String etag = changeTracker.seriesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<Series> series = seriesService.getAll();
-        return new ResponseEntity<>(series.stream().map(
-                s -> modelMapper.map(s, SeriesDto.class))
-                .collect(Collectors.toList()), HttpStatus.OK);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(seriesMapper.mapAll(series));
     }
 
     @GetMapping(path = "/{id}")
-    public ResponseEntity<SeriesDto> getSeries(@PathVariable UUID id) {
+    public ResponseEntity<SeriesDto> getSeries(@PathVariable UUID id, WebRequest webRequest) {
+        String etag = changeTracker.seriesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         Optional<Series> foundSeries = seriesService.get(id);
         return foundSeries.map(s -> {
-            SeriesDto seriesDto = modelMapper.map(s, SeriesDto.class);
-            return new ResponseEntity<>(seriesDto, HttpStatus.OK);
+            SeriesDto seriesDto = seriesMapper.mapTo(s);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(seriesDto);
         }).orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    @Transactional(readOnly = true)
+    @GetMapping(path = "/{id}/stats")
+    public ResponseEntity<SeriesStatsDto> getStats(
+            @PathVariable UUID id,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            WebRequest webRequest) {
+
+        if (seriesService.get(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = changeTracker.etag(List.of(id), from, to, "stats");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(changeTracker.cacheControl(to))
+                .body(seriesStatsService.stats(id, from, to));
+    }
+
+    // Backfill for data written before the statistics existed, e.g. the sample data in init.sql.
+    @PostMapping(path = "/{id}/stats/rebuild")
+    public ResponseEntity rebuildStats(
+            @PathVariable UUID id,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to) {
+
+        if (seriesService.get(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        seriesStatsService.rebuild(id, from, to);
+        return new ResponseEntity(HttpStatus.NO_CONTENT);
+    }
+
     @PostMapping
     public ResponseEntity<SeriesDto> createSeries(@RequestBody SeriesDto seriesDto) {
-        Series series = seriesService.create(modelMapper.map(seriesDto, Series.class));
-        return new ResponseEntity<>(modelMapper.map(series, SeriesDto.class),HttpStatus.CREATED);
+        Series series = seriesService.create(seriesMapper.mapFrom(seriesDto));
+        return new ResponseEntity<>(seriesMapper.mapTo(series),HttpStatus.CREATED);
     }
 
     @PutMapping(path = "/{id}")
@@ -53,9 +106,9 @@ public class SeriesController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        Series seriesDetails = modelMapper.map(seriesDto, Series.class);
+        Series seriesDetails = seriesMapper.mapFrom(seriesDto);
         Series series = seriesService.update(id, seriesDetails);
-        return new ResponseEntity<>(modelMapper.map(series, SeriesDto.class), HttpStatus.OK);
+        return new ResponseEntity<>(seriesMapper.mapTo(series), HttpStatus.OK);
     }
 
     @DeleteMapping(path = "/{id}")
@@ -2,8 +2,8 @@ package com.zaiuz.mesurement.backend.controllers;
 
 import com.zaiuz.mesurement.backend.domain.User;
 import com.zaiuz.mesurement.backend.domain.dto.UserDto;
+import com.zaiuz.mesurement.backend.mappers.UserMapper;
 import com.zaiuz.mesurement.backend.services.UserService;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,18 +16,18 @@ import java.util.UUID;
 public class UserController {
 
     private final UserService userService;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserMapper userMapper) {
         this.userService = userService;
-        this.modelMapper = new ModelMapper();
+        this.userMapper = userMapper;
     }
 
     @GetMapping(path = "/{id}")
     public ResponseEntity<UserDto> getUser(@PathVariable UUID id) {
         Optional<User> foundUser = userService.getUser(id);
         return foundUser.map(user -> {
-            UserDto userDto = modelMapper.map(user, UserDto.class);
+            UserDto userDto = userMapper.mapTo(user);
             return new ResponseEntity<>(userDto, HttpStatus.OK);
         }).orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
@@ -38,9 +38,9 @@ public class UserController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        User userDetails = modelMapper.map(userDto, User.class);
+        User userDetails = userMapper.mapFrom(userDto);
         User user = userService.updateUser(id, userDetails);
-        return new ResponseEntity<>(modelMapper.map(user, UserDto.class), HttpStatus.OK);
+        return new ResponseEntity<>(userMapper.mapTo(user), HttpStatus.OK);
     }
 
     @DeleteMapping(path = "/user/{id}")
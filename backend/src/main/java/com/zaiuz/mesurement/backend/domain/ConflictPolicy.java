@@ -0,0 +1,20 @@
+package com.zaiuz.mesurement.backend.domain;
+
+/**
+ * What a batch write does with a point whose (series, timestamp) already exists,
+ * either in the table or earlier in the same batch.
+ */
+public enum ConflictPolicy {
+    ERROR,
+    IGNORE,
+    UPDATE;
+
+    public static ConflictPolicy parse(String value) {
+        return switch (value) {
+            case "error" -> ERROR;
+            case "ignore" -> IGNORE;
+            case "update" -> UPDATE;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.zaiuz.mesurement.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MeasurementRollup {
+    private UUID seriesId;
+    private RollupResolution resolution;
+    private long bucketMicros;
+
+    private long count;
+    private double min;
+    private double max;
+    private double sum;
+    private double firstValue;
+    private long firstMicros;
+    private double lastValue;
+    private long lastMicros;
+
+    public static MeasurementRollup of(UUID seriesId, RollupResolution resolution, long epochMicros, double value) {
+        return new MeasurementRollup(seriesId, resolution, resolution.bucketStart(epochMicros),
+                1, value, value, value, value, epochMicros, value, epochMicros);
+    }
+
+    public void add(long epochMicros, double value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+        if (epochMicros < firstMicros) {
+            firstMicros = epochMicros;
+            firstValue = value;
+        }
+        if (epochMicros >= lastMicros) {
+            lastMicros = epochMicros;
+            lastValue = value;
+        }
+    }
+}
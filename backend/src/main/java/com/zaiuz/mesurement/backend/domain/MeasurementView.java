@@ -0,0 +1,17 @@
+package com.zaiuz.mesurement.backend.domain;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Read-side projection of a measurement: the columns a response needs, with the series
+ * as a plain id. Repository queries build it with a constructor expression, so reading
+ * a page neither loads the series nor leaves managed entities in the persistence context.
+ */
+public record MeasurementView(UUID id, UUID seriesId, double value, OffsetDateTime timestamp) {
+
+    public static MeasurementView of(Measurement measurement) {
+        return new MeasurementView(measurement.getId(), measurement.getSeries().getId(),
+                measurement.getValue(), measurement.getTimestamp());
+    }
+}
@@ -0,0 +1,33 @@
+package com.zaiuz.mesurement.backend.domain;
+
+import java.time.Duration;
+
+public enum RollupResolution {
+    MINUTE("minute", Duration.ofMinutes(1)),
+    HOUR("hour", Duration.ofHours(1)),
+    DAY("day", Duration.ofDays(1));
+
+    private final String key;
+    private final Duration width;
+
+    RollupResolution(String key, Duration width) {
+        this.key = key;
+        this.width = width;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Duration getWidth() {
+        return width;
+    }
+
+    public long widthMicros() {
+        return width.toNanos() / 1000;
+    }
+
+    public long bucketStart(long epochMicros) {
+        return Math.floorDiv(epochMicros, widthMicros()) * widthMicros();
+    }
+}
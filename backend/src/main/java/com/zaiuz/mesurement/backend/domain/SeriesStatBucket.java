@@ -0,0 +1,31 @@
+package com.zaiuz.mesurement.backend.domain;
+
+import com.zaiuz.mesurement.backend.timeseries.DDSketch;
+import com.zaiuz.mesurement.backend.timeseries.Moments;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class SeriesStatBucket {
+    private final UUID seriesId;
+    private final long bucketMicros;
+    private final Moments moments;
+    private final DDSketch sketch;
+
+    public static SeriesStatBucket empty(UUID seriesId, long bucketMicros) {
+        return new SeriesStatBucket(seriesId, bucketMicros, new Moments(), new DDSketch());
+    }
+
+    public void add(double value) {
+        moments.add(value);
+        sketch.add(value);
+    }
+
+    public void merge(SeriesStatBucket other) {
+        moments.merge(other.moments);
+        sketch.merge(other.sketch);
+    }
+}
@@ -0,0 +1,23 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AggregateBucketDto {
+    private OffsetDateTime timestamp;
+    private long count;
+    private double min;
+    private double max;
+    private double sum;
+    private double avg;
+    private double first;
+    private double last;
+}
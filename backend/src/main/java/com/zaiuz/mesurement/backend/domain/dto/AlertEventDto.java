@@ -0,0 +1,27 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlertEventDto {
+    private long id;
+    private UUID ruleId;
+    private String ruleName;
+    private String type;
+    private UUID seriesId;
+    private String state;
+    private Double value;
+    private OffsetDateTime timestamp;
+    private String message;
+}
@@ -0,0 +1,37 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Alert rule definition. Which fields apply depends on {@code type}:
+ * <ul>
+ *     <li>{@code threshold}: value outside [min, max]; a missing bound falls back to the series' own limit</li>
+ *     <li>{@code rate}: change between consecutive points faster than maxRatePerSecond</li>
+ *     <li>{@code missing}: no point for longer than timeout (ISO-8601 duration)</li>
+ *     <li>{@code window}: aggregate (avg, min, max or spread) over the trailing window outside [min, max]</li>
+ * </ul>
+ * A rule without seriesId applies to every series.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlertRuleDto {
+    private UUID id;
+    private String name;
+    private String type;
+    private UUID seriesId;
+    private Double min;
+    private Double max;
+    private Double maxRatePerSecond;
+    private String timeout;
+    private String window;
+    private String aggregate;
+}
@@ -0,0 +1,18 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AlignedColumnDto {
+    private UUID seriesId;
+    private List<Double> values;
+}
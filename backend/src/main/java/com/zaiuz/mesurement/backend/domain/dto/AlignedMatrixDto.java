@@ -0,0 +1,20 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AlignedMatrixDto {
+    private String step;
+    private String fill;
+    private List<OffsetDateTime> timestamps;
+    private List<AlignedColumnDto> columns;
+}
@@ -0,0 +1,21 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AsyncIngestResultDto {
+    private long sequence;
+    private int accepted;
+    private int rejected;
+    @Builder.Default
+    private List<BatchItemErrorDto> errors = new ArrayList<>();
+}
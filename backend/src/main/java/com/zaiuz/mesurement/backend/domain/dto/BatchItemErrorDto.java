@@ -0,0 +1,15 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchItemErrorDto {
+    private int index;
+    private String reason;
+}
@@ -0,0 +1,20 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchResultDto {
+    private int accepted;
+    private int rejected;
+    @Builder.Default
+    private List<BatchItemErrorDto> errors = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IngestStatusDto {
+    private long lastSequence;
+    private long committedSequence;
+    private int depth;
+    private int capacity;
+}
@@ -1,9 +1,7 @@
 package com.zaiuz.mesurement.backend.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonSetter;
 import com.zaiuz.mesurement.backend.domain.Series;
-import jakarta.persistence.FetchType;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.ManyToOne;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +16,13 @@ import java.util.UUID;
 @Builder
 public class MeasurementDto {
     private UUID id;
-    private Series series;
+    private UUID seriesId;
     private double value;
     private OffsetDateTime timestamp;
+
+    // Clients written against the earlier shape send the series as {"series": {"id": ...}}.
+    @JsonSetter("series")
+    private void setSeries(Series series) {
+        if (series != null) seriesId = series.getId();
+    }
 }
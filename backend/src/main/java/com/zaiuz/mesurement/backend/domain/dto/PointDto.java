@@ -0,0 +1,22 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PointDto {
+    private OffsetDateTime timestamp;
+    private double value;
+    private Double min;
+    private Double max;
+    private Long count;
+}
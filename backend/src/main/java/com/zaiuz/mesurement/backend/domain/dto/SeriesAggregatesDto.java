@@ -0,0 +1,20 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SeriesAggregatesDto {
+    private UUID seriesId;
+    private String resolution;
+    private String step;
+    private List<AggregateBucketDto> buckets;
+}
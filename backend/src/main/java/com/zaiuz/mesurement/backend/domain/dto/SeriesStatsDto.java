@@ -0,0 +1,29 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeriesStatsDto {
+    private UUID seriesId;
+    private OffsetDateTime from;
+    private OffsetDateTime to;
+    private long count;
+    private Double min;
+    private Double max;
+    private Double mean;
+    private Double stddev;
+    private Double p50;
+    private Double p95;
+    private Double p99;
+}
@@ -0,0 +1,20 @@
+package com.zaiuz.mesurement.backend.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Either {@code set} alone, or {@code scale} and/or {@code offset}:
+ * value = value * scale + offset, with scale 1 and offset 0 when omitted.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ValueCorrectionDto {
+    private Double scale;
+    private Double offset;
+    private Double set;
+}
@@ -0,0 +1,19 @@
+package com.zaiuz.mesurement.backend.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Published when existing measurements of a series inside [from, to] were updated or
+ * removed. Anything derived from that range has to be rebuilt from the raw table.
+ */
+@Getter
+@AllArgsConstructor
+public class MeasurementRangeChangedEvent {
+    private final UUID seriesId;
+    private final OffsetDateTime from;
+    private final OffsetDateTime to;
+}
@@ -0,0 +1,13 @@
+package com.zaiuz.mesurement.backend.events;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class MeasurementsAppendedEvent {
+    private final List<Measurement> measurements;
+}
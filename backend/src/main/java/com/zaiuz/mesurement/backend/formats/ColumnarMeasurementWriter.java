@@ -0,0 +1,113 @@
+package com.zaiuz.mesurement.backend.formats;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.timeseries.PointConsumer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the {@code application/x-measurements} format: a compact, columnar encoding
+ * of one or more series that is written straight from the JDBC cursor.
+ *
+ * <pre>
+ * "ZMS1"
+ * varint seriesCount, then per series: uuid (16 bytes), name, color, minValue, maxValue
+ * blocks: varint (seriesIndex + 1), varint n,
+ *         zigzag varint first epoch-micros, n - 1 zigzag varint deltas,
+ *         n big-endian IEEE-754 doubles
+ * varint 0 terminates the stream
+ * </pre>
+ *
+ * Strings are a varint byte length followed by UTF-8. A series may span many blocks;
+ * blocks of one series always come in timestamp order.
+ */
+public class ColumnarMeasurementWriter implements PointConsumer {
+    public static final String MEDIA_TYPE = "application/x-measurements";
+    private static final byte[] MAGIC = {'Z', 'M', 'S', '1'};
+    private static final int BLOCK_SIZE = 4096;
+
+    private final DataOutputStream out;
+    private final long[] timestamps = new long[BLOCK_SIZE];
+    private final double[] values = new double[BLOCK_SIZE];
+    private int buffered;
+    private int seriesIndex = -1;
+
+    public ColumnarMeasurementWriter(OutputStream outputStream, List<Series> series) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        out.write(MAGIC);
+        writeVarint(series.size());
+        for (Series s : series) {
+            out.writeLong(s.getId().getMostSignificantBits());
+            out.writeLong(s.getId().getLeastSignificantBits());
+            writeString(s.getName());
+            writeString(s.getColor());
+            out.writeDouble(s.getMinValue());
+            out.writeDouble(s.getMaxValue());
+        }
+        out.flush();
+    }
+
+    public void beginSeries(int index) throws IOException {
+        flushBlock();
+        seriesIndex = index;
+    }
+
+    @Override
+    public void accept(long epochMicros, double value) {
+        timestamps[buffered] = epochMicros;
+        values[buffered] = value;
+        if (++buffered == BLOCK_SIZE) {
+            try {
+                flushBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public void finish() throws IOException {
+        flushBlock();
+        writeVarint(0);
+        out.flush();
+    }
+
+    private void flushBlock() throws IOException {
+        if (buffered == 0) return;
+
+        writeVarint(seriesIndex + 1);
+        writeVarint(buffered);
+        long previous = 0;
+        for (int i = 0; i < buffered; i++) {
+            writeZigzag(timestamps[i] - previous);
+            previous = timestamps[i];
+        }
+        for (int i = 0; i < buffered; i++) {
+            out.writeDouble(values[i]);
+        }
+        buffered = 0;
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeZigzag(long value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
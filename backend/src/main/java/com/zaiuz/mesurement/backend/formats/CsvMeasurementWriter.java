@@ -0,0 +1,37 @@
+package com.zaiuz.mesurement.backend.formats;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class CsvMeasurementWriter implements MeasurementExportWriter {
+
+    @Override
+    public String contentType() {
+        return "text/csv";
+    }
+
+    @Override
+    public String fileExtension() {
+        return "csv";
+    }
+
+    @Override
+    public void writeHeader(Writer writer) throws IOException {
+        writer.write("id,series_id,timestamp,value\n");
+    }
+
+    // Compacted points have no id; the column is left empty.
+    @Override
+    public void write(Writer writer, Measurement measurement) throws IOException {
+        if (measurement.getId() != null) writer.write(measurement.getId().toString());
+        writer.write(',');
+        writer.write(measurement.getSeries().getId().toString());
+        writer.write(',');
+        writer.write(measurement.getTimestamp().toString());
+        writer.write(',');
+        writer.write(Double.toString(measurement.getValue()));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,25 @@
+package com.zaiuz.mesurement.backend.formats;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public interface MeasurementExportWriter {
+
+    String contentType();
+
+    String fileExtension();
+
+    void writeHeader(Writer writer) throws IOException;
+
+    void write(Writer writer, Measurement measurement) throws IOException;
+
+    static MeasurementExportWriter forFormat(String format) {
+        return switch (format) {
+            case "csv" -> new CsvMeasurementWriter();
+            case "ndjson" -> new NdjsonMeasurementWriter();
+            default -> null;
+        };
+    }
+}
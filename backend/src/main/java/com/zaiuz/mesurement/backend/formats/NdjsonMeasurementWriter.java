@@ -0,0 +1,42 @@
+package com.zaiuz.mesurement.backend.formats;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class NdjsonMeasurementWriter implements MeasurementExportWriter {
+
+    @Override
+    public String contentType() {
+        return "application/x-ndjson";
+    }
+
+    @Override
+    public String fileExtension() {
+        return "ndjson";
+    }
+
+    @Override
+    public void writeHeader(Writer writer) {
+    }
+
+    // Every field is a UUID, a number or an ISO-8601 timestamp, so nothing needs escaping.
+    // Compacted points have no id, which is written as null.
+    @Override
+    public void write(Writer writer, Measurement measurement) throws IOException {
+        if (measurement.getId() == null) {
+            writer.write("{\"id\":null,\"seriesId\":\"");
+        } else {
+            writer.write("{\"id\":\"");
+            writer.write(measurement.getId().toString());
+            writer.write("\",\"seriesId\":\"");
+        }
+        writer.write(measurement.getSeries().getId().toString());
+        writer.write("\",\"timestamp\":\"");
+        writer.write(measurement.getTimestamp().toString());
+        writer.write("\",\"value\":");
+        writer.write(Double.toString(measurement.getValue()));
+        writer.write("}\n");
+    }
+}
@@ -1,8 +1,26 @@
 package com.zaiuz.mesurement.backend.mappers;
 
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public interface Mapper<A,B> {
 
     B mapTo(A a);
 
     A mapFrom(B b);
+
+    default List<B> mapAll(Collection<? extends A> as) {
+        List<B> bs = new ArrayList<>(as.size());
+        for (A a : as) {
+            bs.add(mapTo(a));
+        }
+        return bs;
+    }
+
+    default Page<B> mapAll(Page<? extends A> page) {
+        return page.map(this::mapTo);
+    }
 }
@@ -0,0 +1,41 @@
+package com.zaiuz.mesurement.backend.mappers;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MeasurementMapper implements Mapper<Measurement, MeasurementDto> {
+
+    // Only the id of the series is read, which a lazy Hibernate proxy answers without a query.
+    @Override
+    public MeasurementDto mapTo(Measurement measurement) {
+        return new MeasurementDto(measurement.getId(), measurement.getSeries().getId(),
+                measurement.getValue(), measurement.getTimestamp());
+    }
+
+    public MeasurementDto mapTo(MeasurementView view) {
+        return new MeasurementDto(view.id(), view.seriesId(), view.value(), view.timestamp());
+    }
+
+    public Page<MeasurementDto> mapViews(Page<MeasurementView> page) {
+        return page.map(this::mapTo);
+    }
+
+    @Override
+    public Measurement mapFrom(MeasurementDto measurementDto) {
+        Measurement measurement = new Measurement();
+        measurement.setId(measurementDto.getId());
+        if (measurementDto.getSeriesId() != null) {
+            Series series = new Series();
+            series.setId(measurementDto.getSeriesId());
+            measurement.setSeries(series);
+        }
+        measurement.setValue(measurementDto.getValue());
+        measurement.setTimestamp(measurementDto.getTimestamp());
+        return measurement;
+    }
+}
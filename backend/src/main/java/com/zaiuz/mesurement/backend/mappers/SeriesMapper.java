@@ -0,0 +1,26 @@
+package com.zaiuz.mesurement.backend.mappers;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesDto;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SeriesMapper implements Mapper<Series, SeriesDto> {
+
+    @Override
+    public SeriesDto mapTo(Series series) {
+        return new SeriesDto(series.getId(), series.getName(), series.getColor(),
+                series.getMinValue(), series.getMaxValue());
+    }
+
+    @Override
+    public Series mapFrom(SeriesDto seriesDto) {
+        Series series = new Series();
+        series.setId(seriesDto.getId());
+        series.setName(seriesDto.getName());
+        series.setColor(seriesDto.getColor());
+        series.setMinValue(seriesDto.getMinValue());
+        series.setMaxValue(seriesDto.getMaxValue());
+        return series;
+    }
+}
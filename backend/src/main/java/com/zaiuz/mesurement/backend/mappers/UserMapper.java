@@ -0,0 +1,24 @@
+package com.zaiuz.mesurement.backend.mappers;
+
+import com.zaiuz.mesurement.backend.domain.User;
+import com.zaiuz.mesurement.backend.domain.dto.UserDto;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserMapper implements Mapper<User, UserDto> {
+
+    @Override
+    public UserDto mapTo(User user) {
+        return new UserDto(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    @Override
+    public User mapFrom(UserDto userDto) {
+        User user = new User();
+        user.setId(userDto.getId());
+        user.setUsername(userDto.getUsername());
+        user.setPassword(userDto.getPassword());
+        user.setRole(userDto.getRole());
+        return user;
+    }
+}
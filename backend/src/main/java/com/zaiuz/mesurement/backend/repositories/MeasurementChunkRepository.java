@@ -0,0 +1,178 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import com.zaiuz.mesurement.backend.timeseries.ChunkPointCursor;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.GorillaCodec;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Compressed history in {@code measurement_chunks}: one row per series and chunk window,
+ * holding the points of that window encoded with {@link GorillaCodec}. Windows are
+ * aligned to the epoch, so chunks of different series cover the same spans.
+ *
+ * <p>Only windows that end before {@link #coldBefore()} are ever compacted, which lets
+ * reads of recent data skip this table without a query.
+ */
+@Repository
+public class MeasurementChunkRepository {
+    private static final String MICROS = "(extract(epoch FROM %s) * 1000000)::bigint";
+    private static final String OVERLAP_SQL =
+            "SELECT series_id, " + MICROS.formatted("first_ts") + ", " + MICROS.formatted("last_ts") + ", data " +
+            "FROM measurement_chunks WHERE series_id = ANY(?) AND first_ts <= ? AND last_ts >= ? " +
+            "ORDER BY first_ts, series_id";
+    private static final String LOCK_ONE_SQL =
+            "SELECT data FROM measurement_chunks WHERE series_id = ? AND chunk_start = ? FOR UPDATE";
+    private static final String LOCK_RANGE_SQL =
+            "SELECT chunk_start, data FROM measurement_chunks " +
+            "WHERE series_id = ? AND first_ts < ? AND last_ts >= ? ORDER BY chunk_start FOR UPDATE";
+    private static final String SAVE_SQL =
+            "INSERT INTO measurement_chunks (series_id, chunk_start, first_ts, last_ts, point_count, data) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (series_id, chunk_start) DO UPDATE SET " +
+            "first_ts = EXCLUDED.first_ts, last_ts = EXCLUDED.last_ts, " +
+            "point_count = EXCLUDED.point_count, data = EXCLUDED.data";
+    private static final String DELETE_SQL =
+            "DELETE FROM measurement_chunks WHERE series_id = ? AND chunk_start = ?";
+    private static final String EXPIRE_SQL =
+            "DELETE FROM measurement_chunks WHERE last_ts < ?";
+    private static final int FETCH_SIZE = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate scanTemplate;
+    private final Duration chunk;
+    private final Duration age;
+
+    public MeasurementChunkRepository(JdbcTemplate jdbcTemplate,
+                                      @Value("${measurement.compaction.chunk:P1D}") Duration chunk,
+                                      @Value("${measurement.compaction.age:P30D}") Duration age) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scanTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.scanTemplate.setFetchSize(FETCH_SIZE);
+        this.chunk = chunk;
+        this.age = age;
+    }
+
+    public Duration chunk() {
+        return chunk;
+    }
+
+    // Start of the first window that is still too young to be compacted.
+    public OffsetDateTime coldBefore() {
+        return windowStart(OffsetDateTime.now().minus(age));
+    }
+
+    public OffsetDateTime windowStart(OffsetDateTime timestamp) {
+        long step = chunk.toNanos() / 1000;
+        return EpochMicros.toOffsetDateTime(Math.floorDiv(EpochMicros.of(timestamp), step) * step);
+    }
+
+    /**
+     * Hands the points of the given series with timestamps in [from, to], both inclusive,
+     * to {@code action} and returns its result. Chunks are fetched in batches of
+     * {@value #FETCH_SIZE} as the cursor advances and decoded lazily, so the cursor is
+     * only valid inside the action. Batching needs a transaction; outside one the driver
+     * reads every chunk in range up front.
+     */
+    public <T> T cursor(Collection<UUID> seriesIds, long fromMicros, long toMicros,
+                        Function<ChunkPointCursor, T> action) {
+        if (seriesIds.isEmpty() || toMicros < fromMicros || fromMicros >= EpochMicros.of(coldBefore())) {
+            return action.apply(ChunkPointCursor.empty());
+        }
+        return scanTemplate.query(OVERLAP_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", seriesIds.toArray()));
+            ps.setObject(2, EpochMicros.toOffsetDateTime(toMicros));
+            ps.setObject(3, EpochMicros.toOffsetDateTime(fromMicros));
+        }, (ResultSetExtractor<T>) rs -> action.apply(new ChunkPointCursor(new ChunkRows(rs), fromMicros, toMicros)));
+    }
+
+    // Decoded points of one chunk, locked for the rest of the transaction; empty if there is none yet.
+    public PointBuffer lockChunk(UUID seriesId, OffsetDateTime start) {
+        PointBuffer points = new PointBuffer();
+        jdbcTemplate.query(LOCK_ONE_SQL, rs -> {
+            GorillaCodec.decode(rs.getBytes(1), points);
+        }, seriesId, start);
+        return points;
+    }
+
+    // Chunks of the series that hold points in [from, to), locked for the rest of the transaction.
+    public List<StoredChunk> lockRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.query(LOCK_RANGE_SQL, (rs, rowNum) -> new StoredChunk(
+                rs.getObject(1, OffsetDateTime.class), rs.getBytes(2)), seriesId, to, from);
+    }
+
+    /**
+     * Stores the points as the chunk starting at {@code start}, replacing what was there.
+     * An empty buffer removes the chunk. Returns the encoded size in bytes.
+     */
+    public int save(UUID seriesId, OffsetDateTime start, PointBuffer points) {
+        if (points.size() == 0) {
+            jdbcTemplate.update(DELETE_SQL, seriesId, start);
+            return 0;
+        }
+        byte[] data = GorillaCodec.encode(points);
+        jdbcTemplate.update(SAVE_SQL, seriesId, start,
+                EpochMicros.toOffsetDateTime(points.timestamp(0)),
+                EpochMicros.toOffsetDateTime(points.timestamp(points.size() - 1)),
+                points.size(), data);
+        return data.length;
+    }
+
+    // Drops chunks whose newest point is older than the given instant.
+    public int deleteBefore(OffsetDateTime before) {
+        return jdbcTemplate.update(EXPIRE_SQL, before);
+    }
+
+    public record StoredChunk(OffsetDateTime start, byte[] data) {
+    }
+
+    // The rows of OVERLAP_SQL as they are fetched; reads one row ahead to answer hasNext.
+    private static final class ChunkRows implements Iterator<ChunkPointCursor.EncodedChunk> {
+        private final ResultSet rs;
+        private ChunkPointCursor.EncodedChunk next;
+        private boolean done;
+
+        ChunkRows(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (done) return false;
+            try {
+                if (rs.next()) {
+                    next = new ChunkPointCursor.EncodedChunk(rs.getObject(1, UUID.class), rs.getLong(2),
+                            rs.getLong(3), rs.getBytes(4));
+                } else {
+                    done = true;
+                }
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("Reading measurement chunks", OVERLAP_SQL, e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public ChunkPointCursor.EncodedChunk next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ChunkPointCursor.EncodedChunk chunk = next;
+            next = null;
+            return chunk;
+        }
+    }
+}
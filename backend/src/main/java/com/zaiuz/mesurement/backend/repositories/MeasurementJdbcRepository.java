@@ -0,0 +1,746 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.AggregateBucketDto;
+import com.zaiuz.mesurement.backend.domain.dto.PointDto;
+import com.zaiuz.mesurement.backend.timeseries.ChunkPointCursor;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.IdentifiedPointConsumer;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import com.zaiuz.mesurement.backend.timeseries.PointConsumer;
+import com.zaiuz.mesurement.backend.timeseries.SeekCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Repository
+public class MeasurementJdbcRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO measurements (id, series_id, value, timestamp, created_by, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SQL =
+            "INSERT INTO measurements AS m (id, series_id, value, timestamp, created_by, created_at, updated_at) " +
+            "SELECT u.id, u.series_id, u.value, TIMESTAMPTZ 'epoch' + u.micros * INTERVAL '1 microsecond', " +
+            "u.created_by, TIMESTAMPTZ 'epoch' + u.created * INTERVAL '1 microsecond', " +
+            "TIMESTAMPTZ 'epoch' + u.created * INTERVAL '1 microsecond' " +
+            "FROM unnest(?::uuid[], ?::uuid[], ?::float8[], ?::bigint[], ?::text[], ?::bigint[]) " +
+            "AS u(id, series_id, value, micros, created_by, created) " +
+            "ON CONFLICT (series_id, timestamp) DO %s " +
+            "RETURNING m.series_id, (extract(epoch FROM m.timestamp) * 1000000)::bigint, (m.xmax = 0)";
+    private static final String UPSERT_IGNORE_SQL = UPSERT_SQL.formatted("NOTHING");
+    private static final String UPSERT_UPDATE_SQL = UPSERT_SQL.formatted(
+            "UPDATE SET value = EXCLUDED.value, updated_at = EXCLUDED.updated_at");
+    private static final String BUCKET_SQL =
+            "SELECT series_id, date_bin(make_interval(secs => ?), timestamp, ?) AS bucket, " +
+            "min(value), max(value), avg(value), count(*) " +
+            "FROM measurements WHERE series_id = ANY(?) AND timestamp BETWEEN ? AND ? " +
+            "GROUP BY series_id, bucket ORDER BY series_id, bucket";
+    private static final String AGGREGATE_SQL =
+            "SELECT series_id, date_bin(make_interval(secs => ?), timestamp, TIMESTAMPTZ 'epoch') AS bucket, " +
+            "count(*), min(value), max(value), sum(value), " +
+            "(array_agg(value ORDER BY timestamp))[1], (array_agg(value ORDER BY timestamp DESC))[1], " +
+            "min(timestamp), max(timestamp) " +
+            "FROM measurements WHERE series_id = ANY(?) AND timestamp >= ? AND timestamp < ? " +
+            "GROUP BY series_id, bucket ORDER BY series_id, bucket";
+    private static final String ALIGNED_SQL =
+            "SELECT series_id, date_bin(make_interval(secs => ?), timestamp, ?) AS bucket, avg(value), count(*) " +
+            "FROM measurements WHERE series_id = ANY(?) AND timestamp >= ? AND timestamp < ? " +
+            "GROUP BY series_id, bucket";
+    private static final String DELETE_ONE_SQL =
+            "DELETE FROM measurements WHERE id = ? RETURNING series_id, timestamp";
+    private static final String UPDATE_ONE_SQL =
+            "UPDATE measurements m SET value = ?, timestamp = ?, series_id = ?, updated_at = ? " +
+            "FROM (SELECT id, series_id, timestamp FROM measurements WHERE id = ? FOR UPDATE) old " +
+            "WHERE m.id = old.id RETURNING old.series_id, old.timestamp, " +
+            "m.id, m.value, m.timestamp, m.created_by, m.created_at, m.updated_at";
+    // Bulk statements work through the window in (timestamp, id) order, one bounded chunk
+    // per call, and report the chunk's extent so the caller can continue after it.
+    private static final String CHUNK_SELECT_SQL =
+            "WITH chunk AS (SELECT id, timestamp FROM measurements " +
+            "  WHERE series_id = ? AND timestamp >= ? AND timestamp < ? AND (timestamp, id) > (?, ?) " +
+            "  ORDER BY timestamp, id LIMIT ?), " +
+            "changed AS (%s) " +
+            "SELECT count(*) OVER (), min(timestamp) OVER (), timestamp, id FROM changed " +
+            "ORDER BY timestamp DESC, id DESC LIMIT 1";
+    private static final String DELETE_CHUNK_SQL = CHUNK_SELECT_SQL.formatted(
+            "DELETE FROM measurements m USING chunk c WHERE m.id = c.id AND m.timestamp = c.timestamp " +
+            "RETURNING m.id, m.timestamp");
+    private static final String CORRECT_CHUNK_SQL = CHUNK_SELECT_SQL.formatted(
+            "UPDATE measurements m SET value = m.value * ? + ?, updated_at = ? FROM chunk c " +
+            "WHERE m.id = c.id AND m.timestamp = c.timestamp RETURNING m.id, m.timestamp");
+    private static final UUID MIN_UUID = new UUID(0, 0);
+    private static final String VALUE_RANGE_SQL =
+            "SELECT min(value), max(value) FROM measurements WHERE series_id = ? AND timestamp >= ? AND timestamp < ?";
+    private static final String SCAN_SQL =
+            "SELECT (extract(epoch FROM timestamp) * 1000000)::bigint, value " +
+            "FROM measurements WHERE series_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp";
+    private static final String SCAN_ROWS_SQL =
+            "SELECT id, (extract(epoch FROM timestamp) * 1000000)::bigint, value " +
+            "FROM measurements WHERE series_id = ? AND timestamp >= ? ORDER BY timestamp";
+    private static final int SCAN_FETCH_SIZE = 5000;
+    private static final String COMPACTABLE_SQL =
+            "SELECT series_id, date_bin(make_interval(secs => ?), timestamp, TIMESTAMPTZ 'epoch') AS window " +
+            "FROM measurements WHERE timestamp < ? GROUP BY series_id, window ORDER BY window, series_id LIMIT ?";
+    private static final String DRAIN_SQL =
+            "WITH drained AS (DELETE FROM measurements WHERE series_id = ? AND timestamp >= ? AND timestamp < ? " +
+            "RETURNING timestamp, value) " +
+            "SELECT (extract(epoch FROM timestamp) * 1000000)::bigint, value FROM drained ORDER BY timestamp";
+    // One index seek per series on idx_measurements_series_time, merged and cut to the
+    // page size. There is no OFFSET and no COUNT, so every page costs the same.
+    private static final String SEEK_SQL =
+            "SELECT m.id, m.series_id, m.value, m.timestamp, m.created_by, m.created_at, m.updated_at " +
+            "FROM unnest(?) AS s(id) CROSS JOIN LATERAL (" +
+            "  SELECT * FROM measurements WHERE series_id = s.id AND timestamp BETWEEN ? AND ? %s" +
+            "  ORDER BY timestamp, id LIMIT ?) m " +
+            "ORDER BY m.timestamp, m.id LIMIT ?";
+    private static final String SEEK_FIRST_SQL = SEEK_SQL.formatted("");
+    private static final String SEEK_AFTER_SQL =
+            SEEK_SQL.formatted("AND timestamp >= ? AND (timestamp, id) > (?, ?)");
+    // Used when sharded, in place of the JPA queries of MeasurementRepository that only reach shard 0.
+    private static final String VIEW_PAGE_SQL =
+            "SELECT id, series_id, value, timestamp FROM measurements " +
+            "WHERE series_id = ANY(?) AND timestamp BETWEEN ? AND ? ORDER BY timestamp, id LIMIT ?";
+    private static final String VIEW_COUNT_SQL =
+            "SELECT count(*) FROM measurements WHERE series_id = ANY(?) AND timestamp BETWEEN ? AND ?";
+    private static final String VIEW_BY_ID_SQL =
+            "SELECT id, series_id, value, timestamp FROM measurements WHERE id = ?";
+    private static final String STREAM_SQL =
+            "SELECT id, series_id, value, timestamp, created_by, created_at, updated_at FROM measurements " +
+            "WHERE series_id = ANY(?) AND timestamp BETWEEN ? AND ? ORDER BY timestamp, id";
+    private static final String EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM measurements WHERE id = ?)";
+    private static final String DELETE_SERIES_SQL = "DELETE FROM measurements WHERE series_id = ?";
+    private static final int STREAM_BUFFER = 1024;
+    private static final Comparator<Measurement> ROW_ORDER = Comparator
+            .comparing(Measurement::getTimestamp, OffsetDateTime.timeLineOrder())
+            .thenComparing(Measurement::getId, MeasurementShards.UUID_ORDER);
+    private static final Comparator<MeasurementView> VIEW_ORDER = Comparator
+            .comparing(MeasurementView::timestamp, OffsetDateTime.timeLineOrder())
+            .thenComparing(MeasurementView::id, MeasurementShards.UUID_ORDER);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeasurementShards shards;
+    private final int batchSize;
+    private final MeasurementChunkRepository chunkRepository;
+
+    public MeasurementJdbcRepository(MeasurementShards shards,
+                                     MeasurementChunkRepository chunkRepository,
+                                     @Value("${measurement.batch.jdbc-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = shards.primary();
+        this.shards = shards;
+        this.chunkRepository = chunkRepository;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isSharded() {
+        return shards.isSharded();
+    }
+
+    // Bypasses the persistence context on purpose: ids are assigned up front and the
+    // rows go out as JDBC batches, which the driver rewrites into multi-row INSERTs.
+    public void insertAll(List<Measurement> measurements) {
+        forEachShard(measurements, (template, rows) -> insertAll(template, rows));
+    }
+
+    private void insertAll(JdbcTemplate template, List<Measurement> measurements) {
+        template.batchUpdate(INSERT_SQL, measurements, batchSize, (ps, m) -> {
+            ps.setObject(1, m.getId());
+            ps.setObject(2, m.getSeries().getId());
+            ps.setDouble(3, m.getValue());
+            ps.setObject(4, m.getTimestamp());
+            ps.setString(5, m.getCreatedBy());
+            ps.setObject(6, m.getCreatedAt());
+            ps.setObject(7, m.getUpdatedAt());
+        });
+    }
+
+    /**
+     * Writes points keyed on (series, timestamp) with one INSERT ... ON CONFLICT per chunk.
+     * Keys must be unique within the list; rows that hit an existing key are either left
+     * alone or get the new value, depending on {@code overwrite}.
+     */
+    public UpsertResult upsertAll(List<Measurement> measurements, boolean overwrite) {
+        String sql = overwrite ? UPSERT_UPDATE_SQL : UPSERT_IGNORE_SQL;
+        UpsertResult result = new UpsertResult(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        forEachShard(measurements, (template, rows) -> upsertAll(template, sql, rows, result));
+        return result;
+    }
+
+    private void upsertAll(JdbcTemplate template, String sql, List<Measurement> measurements, UpsertResult result) {
+        for (int start = 0; start < measurements.size(); start += batchSize) {
+            List<Measurement> chunk = measurements.subList(start, Math.min(start + batchSize, measurements.size()));
+            Map<PointKey, Measurement> pending = new LinkedHashMap<>(chunk.size() * 2);
+            for (Measurement m : chunk) {
+                pending.put(new PointKey(m.getSeries().getId(), EpochMicros.of(m.getTimestamp())), m);
+            }
+
+            template.query(connection -> {
+                int n = chunk.size();
+                Object[] ids = new Object[n];
+                Object[] seriesIds = new Object[n];
+                Object[] values = new Object[n];
+                Object[] micros = new Object[n];
+                Object[] createdBy = new Object[n];
+                Object[] created = new Object[n];
+                for (int i = 0; i < n; i++) {
+                    Measurement m = chunk.get(i);
+                    ids[i] = m.getId();
+                    seriesIds[i] = m.getSeries().getId();
+                    values[i] = m.getValue();
+                    micros[i] = EpochMicros.of(m.getTimestamp());
+                    createdBy[i] = m.getCreatedBy();
+                    created[i] = EpochMicros.of(m.getCreatedAt());
+                }
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setArray(1, connection.createArrayOf("uuid", ids));
+                ps.setArray(2, connection.createArrayOf("uuid", seriesIds));
+                ps.setArray(3, connection.createArrayOf("float8", values));
+                ps.setArray(4, connection.createArrayOf("bigint", micros));
+                ps.setArray(5, connection.createArrayOf("text", createdBy));
+                ps.setArray(6, connection.createArrayOf("bigint", created));
+                return ps;
+            }, rs -> {
+                Measurement m = pending.remove(new PointKey(rs.getObject(1, UUID.class), rs.getLong(2)));
+                if (m == null) return;
+                (rs.getBoolean(3) ? result.inserted() : result.updated()).add(m);
+            });
+            result.skipped().addAll(pending.values());
+        }
+    }
+
+    /**
+     * Splits a write by shard. Shard 0 goes last, so a failure on another shard aborts the
+     * transaction before shard 0 has written; rows already committed on other shards stay.
+     */
+    private void forEachShard(List<Measurement> measurements, BiConsumer<JdbcTemplate, List<Measurement>> write) {
+        if (!shards.isSharded()) {
+            write.accept(jdbcTemplate, measurements);
+            return;
+        }
+        shards.partition(measurements, m -> m.getSeries().getId()).descendingMap()
+                .forEach((shard, rows) -> write.accept(shards.get(shard), rows));
+    }
+
+    // The id does not tell the shard, so every shard is asked; at most one has the row.
+    public Optional<RowKey> deleteById(UUID id) {
+        return shards.fanOutAll(template -> template.query(DELETE_ONE_SQL, rs -> rs.next()
+                        ? Optional.of(new RowKey(rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class)))
+                        : Optional.<RowKey>empty(), id))
+                .stream().flatMap(Optional::stream).findFirst();
+    }
+
+    // Series rows on shard 0 go with the series through ON DELETE CASCADE; other shards have no foreign key.
+    public void deleteSeries(UUID seriesId) {
+        if (shards.shardOf(seriesId) != 0) shards.forSeries(seriesId).update(DELETE_SERIES_SQL, seriesId);
+    }
+
+    /**
+     * Updates value, timestamp and series in one statement, moving the row to another
+     * partition if needed. The returned measurement only carries the series id. A row
+     * cannot move to a series on another shard.
+     */
+    public Optional<UpdatedRow> update(UUID id, Measurement details) {
+        JdbcTemplate target = shards.forSeries(details.getSeries().getId());
+        Optional<UpdatedRow> updated = target.query(UPDATE_ONE_SQL, rs -> {
+            if (!rs.next()) return Optional.empty();
+            Series series = new Series();
+            series.setId(details.getSeries().getId());
+            Measurement current = new Measurement(rs.getObject(3, UUID.class), series, rs.getDouble(4),
+                    rs.getObject(5, OffsetDateTime.class), rs.getString(6),
+                    rs.getObject(7, OffsetDateTime.class), rs.getObject(8, OffsetDateTime.class));
+            RowKey previous = new RowKey(rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class));
+            return Optional.of(new UpdatedRow(previous, current));
+        }, details.getValue(), details.getTimestamp(), details.getSeries().getId(), details.getUpdatedAt(), id);
+        if (updated.isPresent() || !shards.isSharded()) return updated;
+        if (shards.fanOutAll(t -> t != target && Boolean.TRUE.equals(t.queryForObject(EXISTS_SQL, Boolean.class, id)))
+                .contains(true)) {
+            throw new IllegalArgumentException("measurement cannot move to a series on another shard");
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes up to {@code limit} rows of the series in [from, to) that come after
+     * {@code after} in (timestamp, id) order; null starts at the beginning of the window.
+     */
+    public Chunk deleteChunk(UUID seriesId, OffsetDateTime from, OffsetDateTime to, Chunk after, int limit) {
+        return runChunk(DELETE_CHUNK_SQL, List.of(), seriesId, from, to, after, limit);
+    }
+
+    // Sets value = value * scale + offset on the next chunk of the window.
+    public Chunk correctChunk(UUID seriesId, OffsetDateTime from, OffsetDateTime to, Chunk after, int limit,
+                              double scale, double offset, OffsetDateTime updatedAt) {
+        return runChunk(CORRECT_CHUNK_SQL, List.of(scale, offset, updatedAt), seriesId, from, to, after, limit);
+    }
+
+    // Lowest and highest value of the series in [from, to), compacted points included; empty if there is none.
+    public Optional<ValueRange> valueRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        double[] range = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        PointConsumer extend = (epochMicros, value) -> {
+            range[0] = Math.min(range[0], value);
+            range[1] = Math.max(range[1], value);
+        };
+        chunkRepository.cursor(List.of(seriesId), EpochMicros.of(from), EpochMicros.of(to) - 1, cold -> {
+            cold.drainBefore(Long.MAX_VALUE, extend);
+            return null;
+        });
+        shards.forSeries(seriesId).query(VALUE_RANGE_SQL, rs -> {
+            double min = rs.getDouble(1);
+            if (rs.wasNull()) return;
+            extend.accept(0, min);
+            extend.accept(0, rs.getDouble(2));
+        }, seriesId, from, to);
+        return range[0] > range[1] ? Optional.empty() : Optional.of(new ValueRange(range[0], range[1]));
+    }
+
+    private Chunk runChunk(String sql, List<Object> changeParams, UUID seriesId, OffsetDateTime from,
+                           OffsetDateTime to, Chunk after, int limit) {
+        List<Object> params = new ArrayList<>();
+        params.add(seriesId);
+        params.add(from);
+        params.add(to);
+        params.add(after == null ? from : after.last());
+        params.add(after == null ? MIN_UUID : after.lastId());
+        params.add(limit);
+        params.addAll(changeParams);
+        return shards.forSeries(seriesId).query(sql, rs -> rs.next()
+                ? new Chunk(rs.getInt(1), rs.getObject(2, OffsetDateTime.class),
+                        rs.getObject(3, OffsetDateTime.class), rs.getObject(4, UUID.class))
+                : new Chunk(0, null, null, null), params.toArray());
+    }
+
+    public Map<UUID, List<PointDto>> aggregateBuckets(Collection<UUID> seriesIds, OffsetDateTime from,
+                                                      OffsetDateTime to, Duration bucket) {
+        Map<UUID, TreeMap<Long, Bucket>> merged = chunkRepository.cursor(seriesIds, EpochMicros.of(from),
+                EpochMicros.of(to), cold -> cold.hasPoint()
+                        ? foldCold(cold, EpochMicros.of(from), bucket.toNanos() / 1000)
+                        : null);
+
+        Map<UUID, List<PointDto>> result = new LinkedHashMap<>();
+        List<BucketRow> partials = shards.query(seriesIds, (template, ids) -> template.query(BUCKET_SQL, ps -> {
+            ps.setDouble(1, bucket.toNanos() / 1e9);
+            ps.setObject(2, from);
+            ps.setArray(3, uuidArray(ps.getConnection(), ids));
+            ps.setObject(4, from);
+            ps.setObject(5, to);
+        }, (rs, rowNum) -> new BucketRow(rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class),
+                rs.getLong(6), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5) * rs.getLong(6),
+                rs.getDouble(5), null, null)));
+        for (BucketRow row : partials) {
+            if (merged != null) {
+                bucket(merged, row.seriesId(), EpochMicros.of(row.start()))
+                        .merge(row.count(), row.min(), row.max(), row.sum());
+                continue;
+            }
+            result.computeIfAbsent(row.seriesId(), id -> new ArrayList<>()).add(new PointDto(
+                    row.start(), row.average(), row.min(), row.max(), row.count()));
+        }
+        if (merged == null) return result;
+
+        merged.forEach((seriesId, buckets) -> {
+            List<PointDto> points = new ArrayList<>(buckets.size());
+            buckets.forEach((start, b) -> points.add(new PointDto(
+                    EpochMicros.toOffsetDateTime(start), b.sum / b.count, b.min, b.max, b.count)));
+            result.put(seriesId, points);
+        });
+        return result;
+    }
+
+    /**
+     * Average per series and bucket, already pivoted: column i of a series holds the bucket
+     * starting at {@code from + i * step}, NaN where the bucket has no rows.
+     */
+    public Map<UUID, double[]> alignedAverages(Collection<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                               Duration step, int buckets) {
+        Map<UUID, double[]> result = new LinkedHashMap<>();
+        for (UUID id : seriesIds) {
+            double[] column = new double[buckets];
+            Arrays.fill(column, Double.NaN);
+            result.put(id, column);
+        }
+        long fromMicros = EpochMicros.of(from);
+        long stepMicros = step.toNanos() / 1000;
+        Map<UUID, TreeMap<Long, Bucket>> merged = chunkRepository.cursor(seriesIds, fromMicros,
+                EpochMicros.of(to) - 1, cold -> cold.hasPoint() ? foldCold(cold, fromMicros, stepMicros) : null);
+        List<BucketRow> partials = shards.query(seriesIds, (template, ids) -> template.query(ALIGNED_SQL, ps -> {
+            ps.setDouble(1, step.toNanos() / 1e9);
+            ps.setObject(2, from);
+            ps.setArray(3, uuidArray(ps.getConnection(), ids));
+            ps.setObject(4, from);
+            ps.setObject(5, to);
+        }, (rs, rowNum) -> new BucketRow(rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class),
+                rs.getLong(4), Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, rs.getDouble(3) * rs.getLong(4),
+                rs.getDouble(3), null, null)));
+        for (BucketRow row : partials) {
+            long start = EpochMicros.of(row.start());
+            if (merged != null) {
+                bucket(merged, row.seriesId(), start).merge(row.count(), row.min(), row.max(), row.sum());
+                continue;
+            }
+            int index = (int) ((start - fromMicros) / stepMicros);
+            double[] column = result.get(row.seriesId());
+            if (column != null && index >= 0 && index < buckets) column[index] = row.average();
+        }
+        if (merged != null) {
+            merged.forEach((seriesId, byStart) -> byStart.forEach((start, b) -> {
+                int index = (int) ((start - fromMicros) / stepMicros);
+                double[] column = result.get(seriesId);
+                if (column != null && index >= 0 && index < buckets) column[index] = b.sum / b.count;
+            }));
+        }
+        return result;
+    }
+
+    public Map<UUID, List<AggregateBucketDto>> aggregate(Collection<UUID> seriesIds, OffsetDateTime from,
+                                                         OffsetDateTime to, Duration step) {
+        Map<UUID, TreeMap<Long, Bucket>> merged = chunkRepository.cursor(seriesIds, EpochMicros.of(from),
+                EpochMicros.of(to) - 1, cold -> cold.hasPoint() ? foldCold(cold, 0, step.toNanos() / 1000) : null);
+
+        Map<UUID, List<AggregateBucketDto>> result = new LinkedHashMap<>();
+        List<BucketRow> partials = shards.query(seriesIds, (template, ids) -> template.query(AGGREGATE_SQL, ps -> {
+            ps.setDouble(1, step.toNanos() / 1e9);
+            ps.setArray(2, uuidArray(ps.getConnection(), ids));
+            ps.setObject(3, from);
+            ps.setObject(4, to);
+        }, (rs, rowNum) -> new BucketRow(rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class),
+                rs.getLong(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(6) / rs.getLong(3),
+                new double[]{rs.getDouble(7), rs.getDouble(8)},
+                new OffsetDateTime[]{rs.getObject(9, OffsetDateTime.class), rs.getObject(10, OffsetDateTime.class)})));
+        for (BucketRow row : partials) {
+            if (merged != null) {
+                Bucket b = bucket(merged, row.seriesId(), EpochMicros.of(row.start()));
+                b.merge(row.count(), row.min(), row.max(), row.sum());
+                b.mergeEdges(EpochMicros.of(row.edgeTimes()[0]), row.edges()[0],
+                        EpochMicros.of(row.edgeTimes()[1]), row.edges()[1]);
+                continue;
+            }
+            result.computeIfAbsent(row.seriesId(), id -> new ArrayList<>()).add(new AggregateBucketDto(
+                    row.start(), row.count(), row.min(), row.max(), row.sum(), row.average(),
+                    row.edges()[0], row.edges()[1]));
+        }
+        if (merged == null) return result;
+
+        merged.forEach((seriesId, buckets) -> {
+            List<AggregateBucketDto> rows = new ArrayList<>(buckets.size());
+            buckets.forEach((start, b) -> rows.add(new AggregateBucketDto(EpochMicros.toOffsetDateTime(start),
+                    b.count, b.min, b.max, b.sum, b.sum / b.count, b.first, b.last)));
+            result.put(seriesId, rows);
+        });
+        return result;
+    }
+
+    // Forward-only scan of one series in timestamp order, compacted points included, read
+    // from the series' shard in fetch-size batches.
+    public void scanSeries(UUID seriesId, OffsetDateTime from, OffsetDateTime to, PointConsumer consumer) {
+        chunkRepository.cursor(List.of(seriesId), EpochMicros.of(from), EpochMicros.of(to), cold -> {
+            shards.stream(shards.shardOf(seriesId), SCAN_FETCH_SIZE, template -> template.query(SCAN_SQL, ps -> {
+                ps.setObject(1, seriesId);
+                ps.setObject(2, from);
+                ps.setObject(3, to);
+            }, rs -> {
+                long epochMicros = rs.getLong(1);
+                cold.drainBefore(epochMicros, consumer);
+                consumer.accept(epochMicros, rs.getDouble(2));
+            }));
+            cold.drainBefore(Long.MAX_VALUE, consumer);
+            return null;
+        });
+    }
+
+    // (series, window start) pairs that still have rows before the given instant, oldest first.
+    // Only shard 0 is compacted, chunks live next to the series there.
+    public List<RowKey> findCompactable(OffsetDateTime before, Duration window, int limit) {
+        return jdbcTemplate.query(COMPACTABLE_SQL, (rs, rowNum) -> new RowKey(
+                        rs.getObject(1, UUID.class), rs.getObject(2, OffsetDateTime.class)),
+                window.toNanos() / 1e9, before, limit);
+    }
+
+    // Deletes the rows of one series in [from, to) and hands them back in timestamp order.
+    public PointBuffer drainWindow(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        PointBuffer points = new PointBuffer();
+        jdbcTemplate.query(DRAIN_SQL, rs -> {
+            points.accept(rs.getLong(1), rs.getDouble(2));
+        }, seriesId, from, to);
+        return points;
+    }
+
+    public void scanRowsSince(UUID seriesId, OffsetDateTime from, IdentifiedPointConsumer consumer) {
+        shards.stream(shards.shardOf(seriesId), SCAN_FETCH_SIZE, template -> template.query(SCAN_ROWS_SQL, ps -> {
+            ps.setObject(1, seriesId);
+            ps.setObject(2, from);
+        }, rs -> {
+            consumer.accept(rs.getObject(1, UUID.class), rs.getLong(2), rs.getDouble(3));
+        }));
+    }
+
+    // Each shard returns its own first `limit` rows after the cursor; the merge keeps the first `limit` overall.
+    public List<Measurement> findPageAfter(Map<UUID, Series> series, OffsetDateTime from, OffsetDateTime to,
+                                           SeekCursor after, int limit) {
+        List<List<Measurement>> pages = shards.fanOut(series.keySet(),
+                (template, ids) -> findPageAfter(template, ids, series, from, to, after, limit));
+        if (pages.size() == 1) return pages.getFirst();
+        return take(new MergingIterator<>(pages.stream().map(List::iterator).toList(), ROW_ORDER), limit);
+    }
+
+    private List<Measurement> findPageAfter(JdbcTemplate template, List<UUID> ids, Map<UUID, Series> series,
+                                            OffsetDateTime from, OffsetDateTime to, SeekCursor after, int limit) {
+        return template.query(after == null ? SEEK_FIRST_SQL : SEEK_AFTER_SQL, ps -> {
+            int i = 1;
+            ps.setArray(i++, uuidArray(ps.getConnection(), ids));
+            ps.setObject(i++, from);
+            ps.setObject(i++, to);
+            if (after != null) {
+                ps.setObject(i++, after.getTimestamp());
+                ps.setObject(i++, after.getTimestamp());
+                ps.setObject(i++, after.getId());
+            }
+            ps.setInt(i++, limit);
+            ps.setInt(i, limit);
+        }, (rs, rowNum) -> toMeasurement(rs, series));
+    }
+
+    /**
+     * Offset page of the series' rows in (timestamp, id) order, for the sharded layout where
+     * the JPA queries only see shard 0. Every shard returns its first offset + size rows and
+     * its count, so deep pages cost more with every shard; scroll does not have that cost.
+     */
+    public Page<MeasurementView> findViewPage(Collection<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                              Pageable pageable) {
+        int head = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        List<ViewPage> pages = shards.fanOut(seriesIds, (template, ids) -> new ViewPage(
+                template.query(VIEW_PAGE_SQL, ps -> {
+                    ps.setArray(1, uuidArray(ps.getConnection(), ids));
+                    ps.setObject(2, from);
+                    ps.setObject(3, to);
+                    ps.setInt(4, head);
+                }, (rs, rowNum) -> toView(rs)),
+                template.query(VIEW_COUNT_SQL, ps -> {
+                    ps.setArray(1, uuidArray(ps.getConnection(), ids));
+                    ps.setObject(2, from);
+                    ps.setObject(3, to);
+                }, rs -> rs.next() ? rs.getLong(1) : 0L)));
+        Iterator<MeasurementView> merged = new MergingIterator<>(
+                pages.stream().map(page -> page.rows().iterator()).toList(), VIEW_ORDER);
+        for (long skip = pageable.getOffset(); skip > 0 && merged.hasNext(); skip--) merged.next();
+        return new PageImpl<>(take(merged, pageable.getPageSize()), pageable,
+                pages.stream().mapToLong(ViewPage::total).sum());
+    }
+
+    public Optional<MeasurementView> findViewById(UUID id) {
+        return shards.fanOutAll(template -> template.query(VIEW_BY_ID_SQL, (rs, rowNum) -> toView(rs), id))
+                .stream().flatMap(List::stream).findFirst();
+    }
+
+    /**
+     * Rows of the series in (timestamp, id) order, merged from all shards as they are read.
+     * Each shard is read by its own virtual thread in fetch-size batches into a bounded
+     * buffer, so memory stays flat however long the range. The stream must be closed.
+     */
+    public Stream<Measurement> streamRows(Map<UUID, Series> series, OffsetDateTime from, OffsetDateTime to) {
+        Map<Integer, List<UUID>> byShard = shards.partition(series.keySet(), Function.identity());
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<ShardFeed> feeds = new ArrayList<>();
+        byShard.forEach((shard, ids) -> {
+            ShardFeed feed = new ShardFeed();
+            feeds.add(feed);
+            executor.execute(() -> feed.fill(() -> shards.stream(shard, SCAN_FETCH_SIZE, template -> {
+                template.query(STREAM_SQL, ps -> {
+                    ps.setArray(1, uuidArray(ps.getConnection(), ids));
+                    ps.setObject(2, from);
+                    ps.setObject(3, to);
+                }, rs -> {
+                    feed.put(toMeasurement(rs, series));
+                });
+            })));
+        });
+        executor.shutdown();
+        Iterator<Measurement> merged = new MergingIterator<>(feeds, ROW_ORDER);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    private static Measurement toMeasurement(ResultSet rs, Map<UUID, Series> series) throws SQLException {
+        return Measurement.builder()
+                .id(rs.getObject(1, UUID.class))
+                .series(series.get(rs.getObject(2, UUID.class)))
+                .value(rs.getDouble(3))
+                .timestamp(rs.getObject(4, OffsetDateTime.class))
+                .createdBy(rs.getString(5))
+                .createdAt(rs.getObject(6, OffsetDateTime.class))
+                .updatedAt(rs.getObject(7, OffsetDateTime.class))
+                .build();
+    }
+
+    private static MeasurementView toView(ResultSet rs) throws SQLException {
+        return new MeasurementView(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class), rs.getDouble(3),
+                rs.getObject(4, OffsetDateTime.class));
+    }
+
+    private static <T> List<T> take(Iterator<T> iterator, int limit) {
+        List<T> rows = new ArrayList<>(limit);
+        while (rows.size() < limit && iterator.hasNext()) rows.add(iterator.next());
+        return rows;
+    }
+
+    private static Map<UUID, TreeMap<Long, Bucket>> foldCold(ChunkPointCursor cold, long originMicros,
+                                                             long stepMicros) {
+        Map<UUID, TreeMap<Long, Bucket>> merged = new LinkedHashMap<>();
+        for (; cold.hasPoint(); cold.next()) {
+            long start = originMicros + Math.floorDiv(cold.timestamp() - originMicros, stepMicros) * stepMicros;
+            bucket(merged, cold.seriesId(), start).add(cold.timestamp(), cold.value());
+        }
+        return merged;
+    }
+
+    private static Bucket bucket(Map<UUID, TreeMap<Long, Bucket>> merged, UUID seriesId, long startMicros) {
+        return merged.computeIfAbsent(seriesId, id -> new TreeMap<>())
+                .computeIfAbsent(startMicros, start -> new Bucket());
+    }
+
+    private static Array uuidArray(Connection connection, Collection<UUID> ids) throws SQLException {
+        return connection.createArrayOf("uuid", ids.toArray());
+    }
+
+    // Partial aggregate that combines compacted points with per-bucket rows from SQL.
+    private static final class Bucket {
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long firstMicros = Long.MAX_VALUE;
+        private double first;
+        private long lastMicros = Long.MIN_VALUE;
+        private double last;
+
+        void add(long epochMicros, double value) {
+            merge(1, value, value, value);
+            mergeEdges(epochMicros, value, epochMicros, value);
+        }
+
+        void merge(long count, double min, double max, double sum) {
+            this.count += count;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+            this.sum += sum;
+        }
+
+        void mergeEdges(long firstMicros, double first, long lastMicros, double last) {
+            if (firstMicros < this.firstMicros) {
+                this.firstMicros = firstMicros;
+                this.first = first;
+            }
+            if (lastMicros >= this.lastMicros) {
+                this.lastMicros = lastMicros;
+                this.last = last;
+            }
+        }
+    }
+
+    // One shard's rows of a multi-series stream; the producer blocks while the buffer is full.
+    private static final class ShardFeed implements Iterator<Measurement> {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(STREAM_BUFFER);
+        private Object next;
+
+        void fill(Runnable read) {
+            try {
+                read.run();
+                put(END);
+            } catch (RuntimeException e) {
+                put(e);
+            }
+        }
+
+        void put(Object row) {
+            try {
+                buffer.put(row);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Stream closed", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while reading a shard", e);
+                }
+            }
+            if (next instanceof RuntimeException e) throw e;
+            return next != END;
+        }
+
+        @Override
+        public Measurement next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Measurement row = (Measurement) next;
+            next = null;
+            return row;
+        }
+    }
+
+    // One bucket as read from a shard, before it is folded with the other shards and compacted points.
+    private record BucketRow(UUID seriesId, OffsetDateTime start, long count, double min, double max, double sum,
+                             double average, double[] edges, OffsetDateTime[] edgeTimes) {
+    }
+
+    private record ViewPage(List<MeasurementView> rows, long total) {
+    }
+
+    public record RowKey(UUID seriesId, OffsetDateTime timestamp) {
+    }
+
+    public record UpdatedRow(RowKey previous, Measurement current) {
+    }
+
+    public record UpsertResult(List<Measurement> inserted, List<Measurement> updated, List<Measurement> skipped) {
+    }
+
+    private record PointKey(UUID seriesId, long micros) {
+    }
+
+    public record Chunk(int rows, OffsetDateTime first, OffsetDateTime last, UUID lastId) {
+    }
+
+    public record ValueRange(double min, double max) {
+    }
+}
@@ -1,17 +1,45 @@
 package com.zaiuz.mesurement.backend.repositories;
 
 import com.zaiuz.mesurement.backend.domain.Measurement;
-import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface MeasurementRepository extends JpaRepository<Measurement, UUID> {
-    Page<Measurement> findBySeriesInAndTimestampBetween(
-            Collection<Series> series, OffsetDateTime from, OffsetDateTime to, Pageable pageable);
+    // m.series.id reads the foreign key column, so neither query joins or loads the series.
+    @Query(value = "select new com.zaiuz.mesurement.backend.domain.MeasurementView(m.id, m.series.id, m.value, " +
+            "m.timestamp) from Measurement m where m.series.id in :seriesIds and m.timestamp between :from and :to",
+            countQuery = "select count(m) from Measurement m where m.series.id in :seriesIds " +
+                    "and m.timestamp between :from and :to")
+    Page<MeasurementView> findViews(@Param("seriesIds") Collection<UUID> seriesIds,
+                                    @Param("from") OffsetDateTime from,
+                                    @Param("to") OffsetDateTime to,
+                                    Pageable pageable);
+
+    @Query("select new com.zaiuz.mesurement.backend.domain.MeasurementView(m.id, m.series.id, m.value, m.timestamp) " +
+            "from Measurement m where m.id = :id")
+    Optional<MeasurementView> findViewById(@Param("id") UUID id);
+
+    @Query("select m from Measurement m where m.series.id in :seriesIds " +
+            "and m.timestamp between :from and :to order by m.timestamp, m.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Measurement> streamBySeriesIds(@Param("seriesIds") Collection<UUID> seriesIds,
+                                          @Param("from") OffsetDateTime from,
+                                          @Param("to") OffsetDateTime to);
 }
@@ -0,0 +1,145 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import com.zaiuz.mesurement.backend.domain.MeasurementRollup;
+import com.zaiuz.mesurement.backend.domain.RollupResolution;
+import com.zaiuz.mesurement.backend.domain.dto.AggregateBucketDto;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+public class MeasurementRollupRepository {
+    private static final String MERGE_SQL =
+            "ON CONFLICT (series_id, resolution, bucket) DO UPDATE SET " +
+            "count = r.count + EXCLUDED.count, " +
+            "min_value = LEAST(r.min_value, EXCLUDED.min_value), " +
+            "max_value = GREATEST(r.max_value, EXCLUDED.max_value), " +
+            "sum_value = r.sum_value + EXCLUDED.sum_value, " +
+            "first_value = CASE WHEN EXCLUDED.first_ts < r.first_ts THEN EXCLUDED.first_value ELSE r.first_value END, " +
+            "first_ts = LEAST(r.first_ts, EXCLUDED.first_ts), " +
+            "last_value = CASE WHEN EXCLUDED.last_ts >= r.last_ts THEN EXCLUDED.last_value ELSE r.last_value END, " +
+            "last_ts = GREATEST(r.last_ts, EXCLUDED.last_ts)";
+    private static final String UPSERT_SQL =
+            "INSERT INTO measurement_rollups AS r (series_id, resolution, bucket, count, min_value, max_value, " +
+            "sum_value, first_value, first_ts, last_value, last_ts) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            MERGE_SQL;
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM measurement_rollups WHERE series_id = ? AND resolution = ? AND bucket >= ? AND bucket < ?";
+    private static final String ROLLUP_RANGE_SQL =
+            "SELECT series_id, ?, date_bin(make_interval(secs => ?), timestamp, TIMESTAMPTZ 'epoch') AS bucket, " +
+            "count(*), min(value), max(value), sum(value), " +
+            "(array_agg(value ORDER BY timestamp))[1], min(timestamp), " +
+            "(array_agg(value ORDER BY timestamp DESC))[1], max(timestamp) " +
+            "FROM measurements WHERE series_id = ? AND timestamp >= ? AND timestamp < ? " +
+            "GROUP BY series_id, bucket";
+    // A concurrent ingest may recreate a bucket between the delete and this insert; it is merged like an upsert.
+    private static final String REBUILD_RANGE_SQL =
+            "INSERT INTO measurement_rollups AS r (series_id, resolution, bucket, count, min_value, max_value, " +
+            "sum_value, first_value, first_ts, last_value, last_ts) " + ROLLUP_RANGE_SQL + " " + MERGE_SQL;
+    private static final String AGGREGATE_SQL =
+            "SELECT series_id, date_bin(make_interval(secs => ?), bucket, TIMESTAMPTZ 'epoch') AS b, " +
+            "sum(count), min(min_value), max(max_value), sum(sum_value), " +
+            "(array_agg(first_value ORDER BY first_ts))[1], (array_agg(last_value ORDER BY last_ts DESC))[1] " +
+            "FROM measurement_rollups WHERE series_id = ANY(?) AND resolution = ? AND bucket >= ? AND bucket < ? " +
+            "GROUP BY series_id, b ORDER BY series_id, b";
+
+    private static final int REBUILD_CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeasurementShards shards;
+    private final MeasurementChunkRepository chunkRepository;
+
+    public MeasurementRollupRepository(MeasurementShards shards, MeasurementChunkRepository chunkRepository) {
+        this.jdbcTemplate = shards.primary();
+        this.shards = shards;
+        this.chunkRepository = chunkRepository;
+    }
+
+    public void upsertAll(List<MeasurementRollup> rollups) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rollups, rollups.size(), (ps, r) -> {
+            ps.setObject(1, r.getSeriesId());
+            ps.setString(2, r.getResolution().getKey());
+            ps.setObject(3, EpochMicros.toOffsetDateTime(r.getBucketMicros()));
+            ps.setLong(4, r.getCount());
+            ps.setDouble(5, r.getMin());
+            ps.setDouble(6, r.getMax());
+            ps.setDouble(7, r.getSum());
+            ps.setDouble(8, r.getFirstValue());
+            ps.setObject(9, EpochMicros.toOffsetDateTime(r.getFirstMicros()));
+            ps.setDouble(10, r.getLastValue());
+            ps.setObject(11, EpochMicros.toOffsetDateTime(r.getLastMicros()));
+        });
+    }
+
+    /**
+     * Recomputes the buckets in [from, to) from the rows and the compacted points of the range.
+     * Rollups live on shard 0; rows of a series on another shard are aggregated there and
+     * upserted here. Compacted points are folded afterwards and merged into the same buckets.
+     */
+    public void rebuild(UUID seriesId, RollupResolution resolution, OffsetDateTime from, OffsetDateTime to) {
+        jdbcTemplate.update(DELETE_RANGE_SQL, seriesId, resolution.getKey(), from, to);
+        rebuildRows(seriesId, resolution, from, to);
+        chunkRepository.cursor(List.of(seriesId), EpochMicros.of(from), EpochMicros.of(to) - 1, cold -> {
+            List<MeasurementRollup> pending = new ArrayList<>();
+            MeasurementRollup current = null;
+            for (; cold.hasPoint(); cold.next()) {
+                if (current != null && current.getBucketMicros() == resolution.bucketStart(cold.timestamp())) {
+                    current.add(cold.timestamp(), cold.value());
+                    continue;
+                }
+                if (pending.size() >= REBUILD_CHUNK) {
+                    upsertAll(pending);
+                    pending.clear();
+                }
+                current = MeasurementRollup.of(seriesId, resolution, cold.timestamp(), cold.value());
+                pending.add(current);
+            }
+            if (!pending.isEmpty()) upsertAll(pending);
+            return null;
+        });
+    }
+
+    private void rebuildRows(UUID seriesId, RollupResolution resolution, OffsetDateTime from, OffsetDateTime to) {
+        if (shards.shardOf(seriesId) == 0) {
+            jdbcTemplate.update(REBUILD_RANGE_SQL, resolution.getKey(), resolution.getWidth().toSeconds(),
+                    seriesId, from, to);
+            return;
+        }
+        List<MeasurementRollup> rollups = shards.forSeries(seriesId).query(ROLLUP_RANGE_SQL,
+                (rs, rowNum) -> new MeasurementRollup(rs.getObject(1, UUID.class), resolution,
+                        EpochMicros.of(rs.getObject(3, OffsetDateTime.class)), rs.getLong(4), rs.getDouble(5),
+                        rs.getDouble(6), rs.getDouble(7), rs.getDouble(8),
+                        EpochMicros.of(rs.getObject(9, OffsetDateTime.class)), rs.getDouble(10),
+                        EpochMicros.of(rs.getObject(11, OffsetDateTime.class))),
+                resolution.getKey(), resolution.getWidth().toSeconds(), seriesId, from, to);
+        if (!rollups.isEmpty()) upsertAll(rollups);
+    }
+
+    public Map<UUID, List<AggregateBucketDto>> aggregate(Collection<UUID> seriesIds, RollupResolution resolution,
+                                                         OffsetDateTime from, OffsetDateTime to, Duration step) {
+        Map<UUID, List<AggregateBucketDto>> result = new LinkedHashMap<>();
+        jdbcTemplate.query(AGGREGATE_SQL, ps -> {
+            ps.setDouble(1, step.toNanos() / 1e9);
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", seriesIds.toArray()));
+            ps.setString(3, resolution.getKey());
+            ps.setObject(4, from);
+            ps.setObject(5, to);
+        }, rs -> {
+            long count = rs.getLong(3);
+            double sum = rs.getDouble(6);
+            result.computeIfAbsent(rs.getObject(1, UUID.class), id -> new ArrayList<>()).add(new AggregateBucketDto(
+                    rs.getObject(2, OffsetDateTime.class), count, rs.getDouble(4), rs.getDouble(5),
+                    sum, sum / count, rs.getDouble(7), rs.getDouble(8)));
+        });
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The PostgreSQL nodes that hold measurement rows. Shard 0 is the application's own
+ * DataSource, which also keeps series, rollups, statistics and compacted chunks; the
+ * other shards hold only the rows of the series {@link ShardRouter} assigns to them.
+ *
+ * <p>Only shard 0 takes part in Spring-managed transactions. Statements on the other
+ * shards commit on their own, so a write that spans shards is atomic per shard only.
+ */
+public class MeasurementShards implements Closeable {
+    // Same order as the (timestamp, id) ORDER BY of the queries: PostgreSQL compares uuids as unsigned bytes.
+    public static final Comparator<UUID> UUID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final List<JdbcTemplate> templates;
+    private final List<? extends DataSource> ownedPools;
+    private final ShardRouter router;
+
+    public MeasurementShards(List<JdbcTemplate> templates, List<? extends DataSource> ownedPools, ShardRouter router) {
+        if (templates.size() != router.shards()) {
+            throw new IllegalArgumentException("one JdbcTemplate per shard is required");
+        }
+        this.templates = List.copyOf(templates);
+        this.ownedPools = List.copyOf(ownedPools);
+        this.router = router;
+    }
+
+    public static MeasurementShards single(JdbcTemplate primary) {
+        return new MeasurementShards(List.of(primary), List.of(), new ShardRouter(1, 1));
+    }
+
+    public boolean isSharded() {
+        return templates.size() > 1;
+    }
+
+    public int count() {
+        return templates.size();
+    }
+
+    public JdbcTemplate primary() {
+        return templates.get(0);
+    }
+
+    public JdbcTemplate get(int shard) {
+        return templates.get(shard);
+    }
+
+    public int shardOf(UUID seriesId) {
+        return router.shardFor(seriesId);
+    }
+
+    public JdbcTemplate forSeries(UUID seriesId) {
+        return templates.get(router.shardFor(seriesId));
+    }
+
+    // Items grouped by the shard of their series, in shard order.
+    public <T> NavigableMap<Integer, List<T>> partition(Collection<T> items, Function<T, UUID> seriesOf) {
+        NavigableMap<Integer, List<T>> byShard = new TreeMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(router.shardFor(seriesOf.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs the query on every shard that owns some of the series, passing it that shard's
+     * subset, and returns the per-shard results in shard order. Shard 0 runs on the calling
+     * thread, so it still sees the caller's transaction; the others run in parallel on
+     * virtual threads.
+     */
+    public <R> List<R> fanOut(Collection<UUID> seriesIds, BiFunction<JdbcTemplate, List<UUID>, R> query) {
+        Map<Integer, List<UUID>> byShard = partition(seriesIds, Function.identity());
+        List<Integer> shards = new ArrayList<>(byShard.keySet());
+        return run(shards, shard -> query.apply(templates.get(shard), byShard.get(shard)));
+    }
+
+    // Runs the query on every shard, as fanOut does.
+    public <R> List<R> fanOutAll(Function<JdbcTemplate, R> query) {
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = 0; shard < templates.size(); shard++) shards.add(shard);
+        return run(shards, shard -> query.apply(templates.get(shard)));
+    }
+
+    // Concatenation of the per-shard lists of fanOut.
+    public <T> List<T> query(Collection<UUID> seriesIds, BiFunction<JdbcTemplate, List<UUID>, List<T>> query) {
+        List<T> rows = new ArrayList<>();
+        fanOut(seriesIds, query).forEach(rows::addAll);
+        return rows;
+    }
+
+    /**
+     * Runs a streaming read on the shard. The PostgreSQL driver only honours the fetch size
+     * with auto-commit off: inside a transaction shard 0 uses the bound connection as before,
+     * otherwise the read gets a connection of its own with auto-commit off until it returns.
+     */
+    public void stream(int shard, int fetchSize, Consumer<JdbcTemplate> read) {
+        DataSource dataSource = templates.get(shard).getDataSource();
+        if (shard == 0 && TransactionSynchronizationManager.isActualTransactionActive()) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.setFetchSize(fetchSize);
+            read.accept(template);
+            return;
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.setAutoCommit(false);
+            JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            template.setFetchSize(fetchSize);
+            read.accept(template);
+            return;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start a streaming read on shard " + shard, e);
+        } finally {
+            try {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // the pool validates connections it gets back
+            }
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private <R> List<R> run(List<Integer> shards, Function<Integer, R> task) {
+        List<R> results = new ArrayList<>(shards.size());
+        if (shards.size() <= 1) {
+            if (!shards.isEmpty()) results.add(task.apply(shards.get(0)));
+            return results;
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<R>> remote = new ArrayList<>(shards.size() - 1);
+            for (int shard : shards.subList(1, shards.size())) {
+                remote.add(executor.submit(() -> task.apply(shard)));
+            }
+            results.add(task.apply(shards.get(0)));
+            for (Future<R> future : remote) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : ownedPools) {
+            if (pool instanceof Closeable closeable) closeable.close();
+        }
+    }
+}
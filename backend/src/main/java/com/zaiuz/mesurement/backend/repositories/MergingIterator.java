@@ -0,0 +1,48 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * k-way merge of iterators that are each sorted by the comparator. Only the head of every
+ * source is held, so sources may be lazy and unbounded; ties go to the earlier source.
+ */
+final class MergingIterator<T> implements Iterator<T> {
+    private final List<? extends Iterator<? extends T>> sources;
+    private final PriorityQueue<Head<T>> heads;
+
+    MergingIterator(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order) {
+        this.sources = sources;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+            int c = order.compare(a.value, b.value);
+            return c != 0 ? c : Integer.compare(a.source, b.source);
+        });
+        for (int i = 0; i < sources.size(); i++) {
+            advance(i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) throw new NoSuchElementException();
+        advance(head.source);
+        return head.value;
+    }
+
+    private void advance(int source) {
+        Iterator<? extends T> iterator = sources.get(source);
+        if (iterator.hasNext()) heads.add(new Head<>(iterator.next(), source));
+    }
+
+    private record Head<T>(T value, int source) {
+    }
+}
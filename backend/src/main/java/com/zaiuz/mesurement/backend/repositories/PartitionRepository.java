@@ -0,0 +1,83 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+public class PartitionRepository {
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("measurements_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'measurements_y'yyyy'm'MM");
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+            "WHERE c.oid = to_regclass('measurements'))";
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass('measurements')";
+    // Postgres refuses to create a partition while the default one holds rows in its range, so
+    // those rows are moved into a standalone table that is then attached, all in one transaction.
+    private static final String CREATE_MONTH_SQL =
+            "DO $$ BEGIN " +
+            "IF to_regclass('%1$s') IS NOT NULL THEN RETURN; END IF; " +
+            "CREATE TABLE %1$s (LIKE measurements INCLUDING DEFAULTS INCLUDING CONSTRAINTS); " +
+            "IF to_regclass('measurements_default') IS NOT NULL THEN " +
+            "WITH moved AS (DELETE FROM measurements_default WHERE timestamp >= '%2$s' AND timestamp < '%3$s' " +
+            "RETURNING *) INSERT INTO %1$s SELECT * FROM moved; " +
+            "END IF; " +
+            "ALTER TABLE measurements ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s'); " +
+            "END $$";
+    private static final String HAS_DEFAULT_SQL = "SELECT to_regclass('measurements_default') IS NOT NULL";
+    private static final String EXPIRE_DEFAULT_SQL = "DELETE FROM measurements_default WHERE timestamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class));
+    }
+
+    public List<YearMonth> findMonthlyPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        }
+        return months;
+    }
+
+    // Identifiers and bounds come from YearMonth, never from user input.
+    public void createMonth(YearMonth month) {
+        jdbcTemplate.execute(CREATE_MONTH_SQL.formatted(name(month), bound(month), bound(month.plusMonths(1))));
+    }
+
+    public void dropMonth(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name(month));
+    }
+
+    // Rows outside every monthly partition cannot be dropped with one, so they expire by timestamp.
+    public int deleteDefaultBefore(OffsetDateTime before) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_SQL, Boolean.class))) return 0;
+        return jdbcTemplate.update(EXPIRE_DEFAULT_SQL, before);
+    }
+
+    private static String name(YearMonth month) {
+        return NAME_FORMAT.format(month);
+    }
+
+    private static String bound(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC).toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Change versions per series and hour in {@code series_changes}. Every write takes a
+ * fresh value of {@code series_change_seq} after it holds the row lock, so a row's
+ * version only grows. Two sentinel hours exist: {@code 'infinity'} for changes to a
+ * whole series and {@code '-infinity'} for hours folded away by {@link #foldBefore}.
+ */
+@Repository
+public class SeriesChangeRepository {
+    // The row of this id holds changes that concern every series, such as a dropped partition.
+    public static final UUID ALL_SERIES = new UUID(0, 0);
+    // The row of this id versions series metadata: it moves with every create, update or delete of a series.
+    public static final UUID SERIES_METADATA = new UUID(0, 1);
+
+    private static final String MERGE_SQL =
+            " ON CONFLICT (series_id, hour) DO UPDATE SET version = nextval('series_change_seq')";
+    private static final String RECORD_SQL =
+            "INSERT INTO series_changes (series_id, hour, version) VALUES (?, ?, nextval('series_change_seq'))" +
+            MERGE_SQL;
+    private static final String RECORD_WHOLE_SQL =
+            "INSERT INTO series_changes (series_id, hour, version) " +
+            "VALUES (?, 'infinity', nextval('series_change_seq'))" + MERGE_SQL;
+    // Folded hours count for windows that start before the horizon, whole-series rows for every window.
+    private static final String WATERMARK_SQL =
+            "SELECT coalesce(max(version), 0), coalesce(sum(version), 0) FROM series_changes " +
+            "WHERE series_id = ANY(?) AND (hour BETWEEN ? AND ? OR hour = 'infinity' " +
+            "OR (hour = '-infinity' AND ?::timestamptz < ?::timestamptz))";
+    private static final String VERSION_SQL =
+            "SELECT coalesce(max(version), 0) FROM series_changes WHERE series_id = ?";
+    private static final String FOLD_SQL =
+            "WITH folded AS (DELETE FROM series_changes WHERE hour < ? AND hour > '-infinity' RETURNING series_id) " +
+            "INSERT INTO series_changes (series_id, hour, version) " +
+            "SELECT series_id, '-infinity', nextval('series_change_seq') FROM (SELECT DISTINCT series_id FROM folded) f" +
+            MERGE_SQL;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SeriesChangeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Callers pass the keys in a stable order, so concurrent writers lock rows in the same order.
+    public void record(List<HourKey> hours) {
+        if (hours.isEmpty()) return;
+        jdbcTemplate.batchUpdate(RECORD_SQL, hours, hours.size(), (ps, key) -> {
+            ps.setObject(1, key.seriesId());
+            ps.setObject(2, key.hour());
+        });
+    }
+
+    public void recordWhole(UUID seriesId) {
+        jdbcTemplate.update(RECORD_WHOLE_SQL, seriesId);
+    }
+
+    public long seriesVersion() {
+        return jdbcTemplate.queryForObject(VERSION_SQL, Long.class, SERIES_METADATA);
+    }
+
+    /**
+     * Highest and summed version of the series' rows in [fromHour, toHour], together with
+     * the rows that apply to any window. A change raises the sum and folding raises the
+     * maximum, so the pair moves whenever the data behind it does.
+     */
+    public String watermark(Collection<UUID> seriesIds, OffsetDateTime fromHour, OffsetDateTime toHour,
+                            OffsetDateTime horizon) {
+        List<UUID> ids = new ArrayList<>(seriesIds.size() + 1);
+        ids.addAll(seriesIds);
+        ids.add(ALL_SERIES);
+        return jdbcTemplate.query(WATERMARK_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+            ps.setObject(2, fromHour);
+            ps.setObject(3, toHour);
+            ps.setObject(4, fromHour);
+            ps.setObject(5, horizon);
+        }, rs -> rs.next() ? rs.getLong(1) + "." + rs.getBigDecimal(2).toPlainString() : "0.0");
+    }
+
+    // Merges the hours before the given one into a single row per series.
+    public int foldBefore(OffsetDateTime hour) {
+        return jdbcTemplate.update(FOLD_SQL, hour);
+    }
+
+    public record HourKey(UUID seriesId, OffsetDateTime hour) {
+    }
+}
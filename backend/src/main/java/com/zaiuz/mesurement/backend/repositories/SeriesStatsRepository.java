@@ -0,0 +1,120 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import com.zaiuz.mesurement.backend.domain.SeriesStatBucket;
+import com.zaiuz.mesurement.backend.timeseries.DDSketch;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.Moments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+public class SeriesStatsRepository {
+    private static final String KEYS =
+            "unnest(?::uuid[], ?::bigint[]) AS k(series_id, micros)";
+    private static final String KEY_BUCKET = "TIMESTAMPTZ 'epoch' + k.micros * INTERVAL '1 microsecond'";
+    // Empty rows are created first so that the FOR UPDATE below has something to lock
+    // even for buckets no transaction has written yet.
+    private static final String ENSURE_SQL =
+            "INSERT INTO series_stat_buckets (series_id, bucket, count, mean, m2, min_value, max_value, sketch) " +
+            "SELECT k.series_id, " + KEY_BUCKET + ", 0, 0, 0, 'Infinity', '-Infinity', ''::bytea FROM " + KEYS + " " +
+            "ORDER BY 1, 2 ON CONFLICT (series_id, bucket) DO NOTHING";
+    private static final String LOCK_SQL =
+            "SELECT b.series_id, b.bucket, b.count, b.mean, b.m2, b.min_value, b.max_value, b.sketch " +
+            "FROM " + KEYS + " JOIN series_stat_buckets b " +
+            "ON b.series_id = k.series_id AND b.bucket = " + KEY_BUCKET + " " +
+            "ORDER BY b.series_id, b.bucket FOR UPDATE OF b";
+    private static final String UPDATE_SQL =
+            "UPDATE series_stat_buckets SET count = ?, mean = ?, m2 = ?, min_value = ?, max_value = ?, sketch = ? " +
+            "WHERE series_id = ? AND bucket = ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO series_stat_buckets (count, mean, m2, min_value, max_value, sketch, series_id, bucket) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (series_id, bucket) DO UPDATE SET " +
+            "count = EXCLUDED.count, mean = EXCLUDED.mean, m2 = EXCLUDED.m2, min_value = EXCLUDED.min_value, " +
+            "max_value = EXCLUDED.max_value, sketch = EXCLUDED.sketch";
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM series_stat_buckets WHERE series_id = ? AND bucket >= ? AND bucket < ?";
+    private static final String RANGE_SQL =
+            "SELECT series_id, bucket, count, mean, m2, min_value, max_value, sketch FROM series_stat_buckets " +
+            "WHERE series_id = ? AND bucket >= ? AND bucket < ? AND count > 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SeriesStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Folds the given partial buckets into the stored ones. The rows are locked while
+     * they are read, merged and written back, so concurrent batches cannot lose updates.
+     */
+    public void mergeAll(List<SeriesStatBucket> partials) {
+        if (partials.isEmpty()) return;
+        UUID[] seriesIds = new UUID[partials.size()];
+        Long[] buckets = new Long[partials.size()];
+        for (int i = 0; i < partials.size(); i++) {
+            seriesIds[i] = partials.get(i).getSeriesId();
+            buckets[i] = partials.get(i).getBucketMicros();
+        }
+
+        jdbcTemplate.update(ENSURE_SQL, ps -> bindKeys(ps, seriesIds, buckets));
+        List<SeriesStatBucket> stored = jdbcTemplate.query(LOCK_SQL, ps -> bindKeys(ps, seriesIds, buckets),
+                (rs, rowNum) -> mapBucket(rs));
+
+        Map<BucketKey, SeriesStatBucket> byKey = new HashMap<>();
+        for (SeriesStatBucket bucket : stored) {
+            byKey.put(new BucketKey(bucket.getSeriesId(), bucket.getBucketMicros()), bucket);
+        }
+        for (SeriesStatBucket partial : partials) {
+            byKey.get(new BucketKey(partial.getSeriesId(), partial.getBucketMicros())).merge(partial);
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SQL, stored, stored.size(), SeriesStatsRepository::bindBucket);
+    }
+
+    public void replaceAll(List<SeriesStatBucket> buckets) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, buckets, buckets.size(), SeriesStatsRepository::bindBucket);
+    }
+
+    public void deleteRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        jdbcTemplate.update(DELETE_RANGE_SQL, seriesId, from, to);
+    }
+
+    public List<SeriesStatBucket> findRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.query(RANGE_SQL, (rs, rowNum) -> mapBucket(rs), seriesId, from, to);
+    }
+
+    private static void bindKeys(PreparedStatement ps, UUID[] seriesIds, Long[] buckets) throws SQLException {
+        ps.setArray(1, ps.getConnection().createArrayOf("uuid", seriesIds));
+        ps.setArray(2, ps.getConnection().createArrayOf("bigint", buckets));
+    }
+
+    private static void bindBucket(PreparedStatement ps, SeriesStatBucket bucket) throws SQLException {
+        Moments moments = bucket.getMoments();
+        ps.setLong(1, moments.count());
+        ps.setDouble(2, moments.mean());
+        ps.setDouble(3, moments.m2());
+        ps.setDouble(4, moments.min());
+        ps.setDouble(5, moments.max());
+        ps.setBytes(6, bucket.getSketch().encode());
+        ps.setObject(7, bucket.getSeriesId());
+        ps.setObject(8, EpochMicros.toOffsetDateTime(bucket.getBucketMicros()));
+    }
+
+    private static SeriesStatBucket mapBucket(ResultSet rs) throws SQLException {
+        Moments moments = new Moments(rs.getLong(3), rs.getDouble(4), rs.getDouble(5),
+                rs.getDouble(6), rs.getDouble(7));
+        return new SeriesStatBucket(rs.getObject(1, UUID.class), EpochMicros.of(rs.getObject(2, OffsetDateTime.class)),
+                moments, DDSketch.decode(rs.getBytes(8)));
+    }
+
+    private record BucketKey(UUID seriesId, long bucketMicros) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Consistent-hash ring that assigns series to shards. Every shard owns a number of virtual
+ * nodes whose positions depend only on the shard index, so growing the cluster from N to
+ * N + 1 shards reassigns about 1 / (N + 1) of the series and leaves the rest in place.
+ */
+public class ShardRouter {
+    private final int shards;
+    private final long[] positions;
+    private final int[] owners;
+
+    public ShardRouter(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("shards and virtual nodes must be positive");
+        }
+        this.shards = shards;
+        long[][] ring = new long[shards * virtualNodes][];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring[shard * virtualNodes + node] = new long[]{mix(mix(shard) + node), shard};
+            }
+        }
+        Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+        positions = new long[ring.length];
+        owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            positions[i] = ring[i][0];
+            owners[i] = (int) ring[i][1];
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    // Owner of the first virtual node at or after the series' hash, wrapping around the ring.
+    public int shardFor(UUID seriesId) {
+        if (shards == 1) return 0;
+        long hash = mix(seriesId.getMostSignificantBits() ^ mix(seriesId.getLeastSignificantBits()));
+        int index = Arrays.binarySearch(positions, hash);
+        if (index < 0) index = -index - 1;
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    // SplitMix64 finalizer: spreads random and sequential inputs alike over the whole range.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
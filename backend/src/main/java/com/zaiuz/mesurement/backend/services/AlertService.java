@@ -0,0 +1,365 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.AlertEventDto;
+import com.zaiuz.mesurement.backend.domain.dto.AlertRuleDto;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.RollingWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates alert rules as measurements are committed. State is kept in memory per rule
+ * and series: the previous point for rate rules, a rolling window for window rules and
+ * the last arrival for missing-data rules. A point costs one pass over the rules of its
+ * series, so alerting scales with the ingest rate instead of polling every series; only
+ * the missing-data check runs on a timer, and it reads nothing but memory.
+ *
+ * <p>Rules, state and event history belong to this instance and do not survive a
+ * restart. An alert that was firing is raised again by the next breaching point.
+ */
+@Service
+public class AlertService {
+    public static final String STATE_FIRING = "firing";
+    public static final String STATE_RESOLVED = "resolved";
+    private static final UUID SERIES_LIMITS_RULE = new UUID(0, 1);
+
+    private final SeriesCache seriesCache;
+    private final MeterRegistry meterRegistry;
+    private final int historySize;
+    private final Map<UUID, Rule> rules = new ConcurrentHashMap<>();
+    private final Map<StateKey, State> states = new ConcurrentHashMap<>();
+    private final Map<StateKey, AlertEventDto> active = new ConcurrentHashMap<>();
+    private final ArrayDeque<AlertEventDto> history = new ArrayDeque<>();
+    private final AtomicLong eventIds = new AtomicLong();
+    private volatile RuleIndex index = new RuleIndex(Map.of(), List.of(), List.of());
+
+    public AlertService(SeriesCache seriesCache, MeterRegistry meterRegistry,
+                        @Value("${measurement.alerts.history:1000}") int historySize,
+                        @Value("${measurement.alerts.series-limits:true}") boolean seriesLimits) {
+        this.seriesCache = seriesCache;
+        this.meterRegistry = meterRegistry;
+        this.historySize = historySize;
+        if (seriesLimits) {
+            register(AlertRuleDto.builder()
+                    .id(SERIES_LIMITS_RULE)
+                    .name("series limits")
+                    .type("threshold")
+                    .build());
+        }
+    }
+
+    public List<AlertRuleDto> getRules() {
+        return rules.values().stream().map(Rule::definition).toList();
+    }
+
+    public AlertRuleDto addRule(AlertRuleDto definition) {
+        definition.setId(UUID.randomUUID());
+        return register(definition);
+    }
+
+    public boolean removeRule(UUID id) {
+        if (rules.remove(id) == null) return false;
+        reindex();
+        states.keySet().removeIf(key -> key.ruleId().equals(id));
+        active.keySet().removeIf(key -> key.ruleId().equals(id));
+        return true;
+    }
+
+    // Events with an id greater than after, oldest first.
+    public List<AlertEventDto> getEvents(long after, UUID seriesId, int limit) {
+        List<AlertEventDto> events = new ArrayList<>();
+        synchronized (history) {
+            for (AlertEventDto event : history) {
+                if (events.size() == limit) break;
+                if (event.getId() <= after) continue;
+                if (seriesId != null && !seriesId.equals(event.getSeriesId())) continue;
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public List<AlertEventDto> getActive() {
+        return active.values().stream().sorted(Comparator.comparingLong(AlertEventDto::getId)).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppended(MeasurementsAppendedEvent event) {
+        RuleIndex current = index;
+        if (current.isEmpty()) return;
+
+        Map<UUID, List<Measurement>> bySeries = new HashMap<>();
+        for (Measurement m : event.getMeasurements()) {
+            bySeries.computeIfAbsent(m.getSeries().getId(), id -> new ArrayList<>()).add(m);
+        }
+        bySeries.forEach((seriesId, points) -> {
+            List<Rule> applicable = current.forSeries(seriesId);
+            if (applicable.isEmpty()) return;
+            points.sort(Comparator.comparing(Measurement::getTimestamp));
+            Series series = points.get(0).getSeries();
+            for (Rule rule : applicable) {
+                State state = state(rule, seriesId);
+                synchronized (state) {
+                    for (Measurement m : points) {
+                        evaluate(rule, state, series, EpochMicros.of(m.getTimestamp()), m.getValue());
+                    }
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${measurement.alerts.sweep-interval:PT10S}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Rule rule : index.missing()) {
+            UUID only = rule.definition().getSeriesId();
+            List<Series> series = only == null ? seriesCache.getAll() : seriesCache.get(only).stream().toList();
+            for (Series s : series) {
+                State state = state(rule, s.getId());
+                synchronized (state) {
+                    if (!state.firing && now - state.lastSeenNanos > rule.timeout().toNanos()) {
+                        transition(rule, state, s.getId(), true, null, EpochMicros.of(OffsetDateTime.now()));
+                    }
+                }
+            }
+        }
+    }
+
+    private void evaluate(Rule rule, State state, Series series, long epochMicros, double value) {
+        AlertRuleDto definition = rule.definition();
+        switch (rule.type()) {
+            case THRESHOLD -> {
+                double min = definition.getMin() != null ? definition.getMin() : series.getMinValue();
+                double max = definition.getMax() != null ? definition.getMax() : series.getMaxValue();
+                transition(rule, state, series.getId(), value < min || value > max, value, epochMicros);
+            }
+            case RATE -> {
+                if (epochMicros <= state.lastMicros) return;
+                if (state.lastMicros != Long.MIN_VALUE) {
+                    double rate = Math.abs(value - state.lastValue) * 1e6 / (epochMicros - state.lastMicros);
+                    transition(rule, state, series.getId(), rate > definition.getMaxRatePerSecond(), rate, epochMicros);
+                }
+                state.lastMicros = epochMicros;
+                state.lastValue = value;
+            }
+            case MISSING -> {
+                state.lastSeenNanos = System.nanoTime();
+                transition(rule, state, series.getId(), false, value, epochMicros);
+            }
+            case WINDOW -> {
+                if (epochMicros <= state.lastMicros) return;
+                if (state.lastMicros == Long.MIN_VALUE) state.firstMicros = epochMicros;
+                state.lastMicros = epochMicros;
+                state.window.add(epochMicros, value);
+                // Judge only full windows, otherwise a spread rule fires on the first point.
+                if (epochMicros - state.firstMicros < rule.windowMicros()) return;
+                double aggregate = rule.aggregate().of(state.window);
+                boolean breached = (definition.getMin() != null && aggregate < definition.getMin())
+                        || (definition.getMax() != null && aggregate > definition.getMax());
+                transition(rule, state, series.getId(), breached, aggregate, epochMicros);
+            }
+        }
+    }
+
+    private void transition(Rule rule, State state, UUID seriesId, boolean breached, Double value,
+                            long epochMicros) {
+        if (breached == state.firing) return;
+        state.firing = breached;
+
+        String eventState = breached ? STATE_FIRING : STATE_RESOLVED;
+        AlertEventDto event = AlertEventDto.builder()
+                .id(eventIds.incrementAndGet())
+                .ruleId(rule.definition().getId())
+                .ruleName(rule.definition().getName())
+                .type(rule.definition().getType())
+                .seriesId(seriesId)
+                .state(eventState)
+                .value(value)
+                .timestamp(EpochMicros.toOffsetDateTime(epochMicros))
+                .message(breached ? rule.describe() : null)
+                .build();
+        StateKey key = new StateKey(rule.definition().getId(), seriesId);
+        if (breached) {
+            active.put(key, event);
+        } else {
+            active.remove(key);
+        }
+        synchronized (history) {
+            history.addLast(event);
+            if (history.size() > historySize) history.pollFirst();
+        }
+        Counter.builder("measurement.alerts.events")
+                .tag("type", rule.definition().getType())
+                .tag("state", eventState)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private State state(Rule rule, UUID seriesId) {
+        return states.computeIfAbsent(new StateKey(rule.definition().getId(), seriesId),
+                key -> new State(rule.type() == Type.WINDOW ? new RollingWindow(rule.windowMicros()) : null));
+    }
+
+    private AlertRuleDto register(AlertRuleDto definition) {
+        rules.put(definition.getId(), compile(definition));
+        reindex();
+        return definition;
+    }
+
+    private synchronized void reindex() {
+        Map<UUID, List<Rule>> bySeries = new HashMap<>();
+        List<Rule> global = new ArrayList<>();
+        List<Rule> missing = new ArrayList<>();
+        for (Rule rule : rules.values()) {
+            UUID seriesId = rule.definition().getSeriesId();
+            if (seriesId == null) {
+                global.add(rule);
+            } else {
+                bySeries.computeIfAbsent(seriesId, id -> new ArrayList<>()).add(rule);
+            }
+            if (rule.type() == Type.MISSING) missing.add(rule);
+        }
+        index = new RuleIndex(bySeries, global, missing);
+    }
+
+    private static Rule compile(AlertRuleDto definition) {
+        Type type = Type.parse(definition.getType());
+        if (type == null) throw new IllegalArgumentException("unknown rule type");
+        definition.setType(type.name().toLowerCase(Locale.ROOT));
+        if (definition.getMin() != null && definition.getMax() != null && definition.getMin() > definition.getMax()) {
+            throw new IllegalArgumentException("min is greater than max");
+        }
+
+        Duration timeout = null;
+        long windowMicros = 0;
+        Aggregate aggregate = null;
+        switch (type) {
+            case RATE -> {
+                if (definition.getMaxRatePerSecond() == null || !(definition.getMaxRatePerSecond() > 0)) {
+                    throw new IllegalArgumentException("maxRatePerSecond must be positive");
+                }
+            }
+            case MISSING -> timeout = positiveDuration(definition.getTimeout(), "timeout");
+            case WINDOW -> {
+                windowMicros = positiveDuration(definition.getWindow(), "window").toNanos() / 1000;
+                aggregate = definition.getAggregate() == null
+                        ? Aggregate.AVG
+                        : Aggregate.parse(definition.getAggregate());
+                if (aggregate == null) throw new IllegalArgumentException("unknown aggregate");
+                if (definition.getMin() == null && definition.getMax() == null) {
+                    throw new IllegalArgumentException("min or max is required");
+                }
+            }
+            default -> {
+            }
+        }
+        return new Rule(definition, type, timeout, windowMicros, aggregate);
+    }
+
+    private static Duration positiveDuration(String value, String field) {
+        try {
+            Duration duration = value == null ? null : Duration.parse(value);
+            if (duration != null && !duration.isNegative() && !duration.isZero()) return duration;
+        } catch (DateTimeParseException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(field + " must be a positive ISO-8601 duration");
+    }
+
+    private enum Type {
+        THRESHOLD, RATE, MISSING, WINDOW;
+
+        static Type parse(String value) {
+            try {
+                return value == null ? null : valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private enum Aggregate {
+        AVG, MIN, MAX, SPREAD;
+
+        static Aggregate parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        double of(RollingWindow window) {
+            return switch (this) {
+                case AVG -> window.mean();
+                case MIN -> window.min();
+                case MAX -> window.max();
+                case SPREAD -> window.max() - window.min();
+            };
+        }
+    }
+
+    private record Rule(AlertRuleDto definition, Type type, Duration timeout, long windowMicros, Aggregate aggregate) {
+        String describe() {
+            return switch (type) {
+                case THRESHOLD -> "value outside limits";
+                case RATE -> "rate of change above " + definition.getMaxRatePerSecond() + "/s";
+                case MISSING -> "no data for " + timeout;
+                case WINDOW -> aggregate.name().toLowerCase(Locale.ROOT) + " over " + definition.getWindow()
+                        + " outside limits";
+            };
+        }
+    }
+
+    private record RuleIndex(Map<UUID, List<Rule>> bySeries, List<Rule> global, List<Rule> missing) {
+        boolean isEmpty() {
+            return bySeries.isEmpty() && global.isEmpty();
+        }
+
+        List<Rule> forSeries(UUID seriesId) {
+            List<Rule> specific = bySeries.get(seriesId);
+            if (specific == null) return global;
+            if (global.isEmpty()) return specific;
+            List<Rule> all = new ArrayList<>(global);
+            all.addAll(specific);
+            return all;
+        }
+    }
+
+    private record StateKey(UUID ruleId, UUID seriesId) {
+    }
+
+    private static final class State {
+        private final RollingWindow window;
+        private boolean firing;
+        private long lastMicros = Long.MIN_VALUE;
+        private double lastValue;
+        private long firstMicros;
+        private long lastSeenNanos = System.nanoTime();
+
+        State(RollingWindow window) {
+            this.window = window;
+        }
+    }
+}
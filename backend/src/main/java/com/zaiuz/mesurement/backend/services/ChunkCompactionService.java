@@ -0,0 +1,109 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves measurements older than {@code measurement.compaction.age} from the row table
+ * into compressed chunks, one (series, window) per transaction: the rows are deleted and
+ * folded into the window's chunk together, so readers see them in exactly one place.
+ * Rows that arrive for an already compacted window are folded in on a later run; when a
+ * row and a compacted point share a timestamp, the row wins.
+ *
+ * <p>Compacted points lose their id and audit columns. Rollups and statistics are not
+ * touched, since the data they summarize does not change.
+ */
+@Service
+@ConditionalOnProperty(name = "measurement.compaction.enabled", havingValue = "true")
+public class ChunkCompactionService {
+    private static final Logger log = LoggerFactory.getLogger(ChunkCompactionService.class);
+
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+    private final MeasurementChunkRepository chunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxWindows;
+    private final Counter points;
+    private final Counter bytes;
+
+    public ChunkCompactionService(MeasurementJdbcRepository measurementJdbcRepository,
+                                  MeasurementChunkRepository chunkRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${measurement.compaction.max-windows:500}") int maxWindows) {
+        this.measurementJdbcRepository = measurementJdbcRepository;
+        this.chunkRepository = chunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxWindows = maxWindows;
+        this.points = Counter.builder("measurement.compaction.points").register(meterRegistry);
+        this.bytes = Counter.builder("measurement.compaction.bytes").baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${measurement.compaction.interval:PT10M}",
+            initialDelayString = "${measurement.compaction.interval:PT10M}")
+    public void compact() {
+        OffsetDateTime before = chunkRepository.coldBefore();
+        List<MeasurementJdbcRepository.RowKey> windows =
+                measurementJdbcRepository.findCompactable(before, chunkRepository.chunk(), maxWindows);
+        long moved = 0;
+        for (MeasurementJdbcRepository.RowKey window : windows) {
+            try {
+                moved += compactWindow(window.seriesId(), window.timestamp());
+            } catch (DataAccessException e) {
+                log.warn("Compaction of series {} at {} failed: {}", window.seriesId(), window.timestamp(),
+                        e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            log.info("Compacted {} measurements in {} windows older than {}", moved, windows.size(), before);
+        }
+    }
+
+    public int compactWindow(UUID seriesId, OffsetDateTime start) {
+        OffsetDateTime end = start.plus(chunkRepository.chunk());
+        Integer moved = transactionTemplate.execute(status -> {
+            // Rows first: a concurrent compactor of the same window blocks here and then
+            // finds nothing, instead of overwriting the chunk with a stale copy.
+            PointBuffer rows = measurementJdbcRepository.drainWindow(seriesId, start, end);
+            if (rows.size() == 0) return 0;
+            PointBuffer merged = merge(chunkRepository.lockChunk(seriesId, start), rows);
+            bytes.increment(chunkRepository.save(seriesId, start, merged));
+            return rows.size();
+        });
+        points.increment(moved);
+        return moved;
+    }
+
+    // Both inputs are in timestamp order; on equal timestamps the row replaces the compacted point.
+    static PointBuffer merge(PointBuffer stored, PointBuffer rows) {
+        PointBuffer merged = new PointBuffer(stored.size() + rows.size());
+        int i = 0;
+        int j = 0;
+        while (i < stored.size() || j < rows.size()) {
+            if (j == rows.size() || (i < stored.size() && stored.timestamp(i) < rows.timestamp(j))) {
+                merged.accept(stored.timestamp(i), stored.value(i));
+                i++;
+            } else {
+                if (i < stored.size() && stored.timestamp(i) == rows.timestamp(j)) i++;
+                merged.accept(rows.timestamp(j), rows.value(j));
+                j++;
+            }
+        }
+        return merged;
+    }
+}
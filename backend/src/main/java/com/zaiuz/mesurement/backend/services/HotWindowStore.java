@@ -0,0 +1,197 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import com.zaiuz.mesurement.backend.timeseries.SeriesWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last {@code retention} of every queried series in memory. A window is
+ * loaded from the database the first time it is needed and then follows the ingest
+ * path. Any update or delete in a series drops its window, and the next query loads it
+ * again. Appends that commit while a window loads are buffered by the window, so the
+ * load runs without blocking ingest.
+ *
+ * <p>Loads run in the background, outside any transaction, so they always read the
+ * primary: a window loaded from a lagging replica would miss the points the replica had
+ * not replayed yet, and appends never fill that gap. Until its window is loaded, a
+ * series is served by the regular database query.
+ *
+ * <p>Windows only see the appends of this instance, so they would miss points written
+ * through any other. The store therefore stays off unless
+ * {@code measurement.hot-window.single-instance} confirms that there is no other.
+ */
+@Service
+public class HotWindowStore {
+    private static final Logger log = LoggerFactory.getLogger(HotWindowStore.class);
+    private static final Sort TIMESTAMP_ASC = Sort.by("timestamp").ascending();
+
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+    private final Map<UUID, SeriesWindow> windows = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Duration retention;
+    private final int maxPointsPerSeries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public HotWindowStore(MeasurementJdbcRepository measurementJdbcRepository, MeterRegistry meterRegistry,
+                          @Value("${measurement.hot-window.enabled:true}") boolean enabled,
+                          @Value("${measurement.hot-window.single-instance:false}") boolean singleInstance,
+                          @Value("${measurement.hot-window.retention:PT6H}") Duration retention,
+                          @Value("${measurement.hot-window.max-points-per-series:200000}") int maxPointsPerSeries) {
+        this.measurementJdbcRepository = measurementJdbcRepository;
+        this.enabled = enabled && singleInstance;
+        if (enabled && !singleInstance) {
+            log.info("Hot windows disabled: set measurement.hot-window.single-instance=true "
+                    + "if this is the only instance writing measurements");
+        }
+        this.retention = retention;
+        this.maxPointsPerSeries = maxPointsPerSeries;
+        this.hits = Counter.builder("measurement.hot-window.queries").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("measurement.hot-window.queries").tag("result", "miss").register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppended(MeasurementsAppendedEvent event) {
+        if (!enabled) return;
+
+        for (Measurement m : event.getMeasurements()) {
+            SeriesWindow window = windows.get(m.getSeries().getId());
+            if (window != null) {
+                window.append(m.getId(), EpochMicros.of(m.getTimestamp()), m.getValue());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRangeChanged(MeasurementRangeChangedEvent event) {
+        windows.remove(event.getSeriesId());
+    }
+
+    public Optional<Page<MeasurementView>> query(List<Series> series, OffsetDateTime from, OffsetDateTime to,
+                                                 Pageable pageable) {
+        if (!enabled || series.isEmpty() || !isTimestampOrder(pageable.getSort())) return Optional.empty();
+
+        long cutoff = EpochMicros.of(OffsetDateTime.now().minus(retention));
+        long fromMicros = EpochMicros.of(from);
+        long toMicros = EpochMicros.of(to);
+        if (fromMicros < cutoff) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        List<Slice> slices = new ArrayList<>(series.size());
+        long total = 0;
+        for (Series s : series) {
+            SeriesWindow window = loadedWindow(s.getId(), cutoff);
+            if (window == null || !window.covers(fromMicros)) {
+                misses.increment();
+                return Optional.empty();
+            }
+            Slice slice = new Slice(s.getId());
+            window.read(fromMicros, toMicros, slice::add);
+            slices.add(slice);
+            total += slice.points.size();
+        }
+        hits.increment();
+        return Optional.of(new PageImpl<>(merge(slices, pageable), pageable, total));
+    }
+
+    // The loaded window of a series, or null while it is still loading; the first miss starts the load.
+    private SeriesWindow loadedWindow(UUID seriesId, long cutoff) {
+        SeriesWindow window = windows.computeIfAbsent(seriesId, id -> new SeriesWindow(1024, maxPointsPerSeries));
+        if (!window.isLoaded()) {
+            if (window.beginLoading()) {
+                Thread.ofVirtual().name("hot-window-load").start(() -> load(seriesId, window, cutoff));
+            }
+            return null;
+        }
+        window.evictBefore(cutoff);
+        return window;
+    }
+
+    private void load(UUID seriesId, SeriesWindow window, long cutoff) {
+        try {
+            measurementJdbcRepository.scanRowsSince(seriesId, EpochMicros.toOffsetDateTime(cutoff), window::insert);
+            window.markLoaded(cutoff);
+        } catch (RuntimeException e) {
+            windows.remove(seriesId, window);
+            log.warn("Loading the hot window of series {} failed: {}", seriesId, e.getMessage());
+        }
+    }
+
+    // k-way merge of the per-series slices, materializing only the requested page.
+    private static List<MeasurementView> merge(List<Slice> slices, Pageable pageable) {
+        int[] positions = new int[slices.size()];
+        long skip = pageable.getOffset();
+        List<MeasurementView> page = new ArrayList<>(pageable.getPageSize());
+        while (page.size() < pageable.getPageSize()) {
+            int next = -1;
+            for (int i = 0; i < slices.size(); i++) {
+                Slice slice = slices.get(i);
+                if (positions[i] < slice.points.size() && (next < 0
+                        || slice.points.timestamp(positions[i]) < slices.get(next).points.timestamp(positions[next]))) {
+                    next = i;
+                }
+            }
+            if (next < 0) break;
+
+            int index = positions[next]++;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            page.add(slices.get(next).toView(index));
+        }
+        return page;
+    }
+
+    private static boolean isTimestampOrder(Sort sort) {
+        return sort.isUnsorted() || sort.equals(TIMESTAMP_ASC);
+    }
+
+    private static class Slice {
+        private final UUID seriesId;
+        private final List<UUID> ids = new ArrayList<>();
+        private final PointBuffer points = new PointBuffer();
+
+        Slice(UUID seriesId) {
+            this.seriesId = seriesId;
+        }
+
+        void add(UUID id, long epochMicros, double value) {
+            ids.add(id);
+            points.accept(epochMicros, value);
+        }
+
+        MeasurementView toView(int index) {
+            return new MeasurementView(ids.get(index), seriesId, points.value(index),
+                    EpochMicros.toOffsetDateTime(points.timestamp(index)));
+        }
+    }
+}
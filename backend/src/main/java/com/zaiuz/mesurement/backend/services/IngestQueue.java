@@ -0,0 +1,254 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.dto.IngestStatusDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for the async ingest endpoint. Requests enqueue their whole batch
+ * or nothing, and every point gets a sequence number. A single dispatcher cuts the
+ * FIFO queue into contiguous batches, triggered by size or by the age of the oldest
+ * point, and hands them to a fixed pool of writers. Because batches are contiguous, the
+ * committed sequence can be reported as a watermark: every point up to it has been
+ * written or, after exhausting its retries, dropped.
+ */
+@Service
+@ConditionalOnProperty(name = "measurement.ingest.async.enabled", havingValue = "true")
+public class IngestQueue implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(IngestQueue.class);
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final MeasurementService measurementService;
+    private final BlockingQueue<Pending> queue;
+    private final int capacity;
+    private final int maxBatch;
+    private final long flushIntervalNanos;
+    private final int writerCount;
+    private final int maxAttempts;
+    private final Object enqueueLock = new Object();
+    private final Map<Long, Long> completedRanges = new TreeMap<>();
+    private final AtomicLong committedSequence = new AtomicLong();
+    private final Timer flushTimer;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter duplicates;
+    private long lastSequence;
+    private volatile boolean running;
+    private Thread dispatcher;
+    private ExecutorService writers;
+    private Semaphore writerSlots;
+
+    public IngestQueue(MeasurementService measurementService, MeterRegistry meterRegistry,
+                       @Value("${measurement.ingest.async.capacity:100000}") int capacity,
+                       @Value("${measurement.ingest.async.max-batch:5000}") int maxBatch,
+                       @Value("${measurement.ingest.async.flush-interval:PT0.2S}") Duration flushInterval,
+                       @Value("${measurement.ingest.async.writers:2}") int writerCount,
+                       @Value("${measurement.ingest.async.max-attempts:10}") int maxAttempts) {
+        this.measurementService = measurementService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writerCount = writerCount;
+        this.maxAttempts = maxAttempts;
+
+        this.flushTimer = Timer.builder("measurement.ingest.flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.accepted = Counter.builder("measurement.ingest.points").tag("result", "accepted").register(meterRegistry);
+        this.rejected = Counter.builder("measurement.ingest.points").tag("result", "queue_full").register(meterRegistry);
+        this.failed = Counter.builder("measurement.ingest.points").tag("result", "failed").register(meterRegistry);
+        this.duplicates = Counter.builder("measurement.ingest.points").tag("result", "duplicate").register(meterRegistry);
+        Gauge.builder("measurement.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("measurement.ingest.queue.lag", this, IngestQueue::lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the sequence number of the last enqueued point, or -1 when the queue
+     * cannot take the whole batch right now
+     * @throws IllegalArgumentException if the batch is larger than the queue could ever take
+     */
+    public long offer(List<Measurement> measurements) {
+        if (measurements.size() > capacity) {
+            throw new IllegalArgumentException("Batch of " + measurements.size() + " exceeds queue capacity " + capacity);
+        }
+        synchronized (enqueueLock) {
+            if (!running || queue.remainingCapacity() < measurements.size()) {
+                rejected.increment(measurements.size());
+                return -1;
+            }
+            long now = System.nanoTime();
+            for (Measurement m : measurements) {
+                queue.add(new Pending(m, ++lastSequence, now));
+            }
+            accepted.increment(measurements.size());
+            return lastSequence;
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public IngestStatusDto status() {
+        long last;
+        synchronized (enqueueLock) {
+            last = lastSequence;
+        }
+        return new IngestStatusDto(last, committedSequence.get(), queue.size(), capacity);
+    }
+
+    @Override
+    public void start() {
+        writers = Executors.newFixedThreadPool(writerCount, Thread.ofPlatform().name("ingest-writer-", 0).factory());
+        writerSlots = new Semaphore(writerCount);
+        running = true;
+        dispatcher = Thread.ofPlatform().name("ingest-dispatcher").start(this::dispatch);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            dispatcher.join();
+            writers.shutdown();
+            writers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void dispatch() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+
+                List<Pending> batch = new ArrayList<>(maxBatch);
+                batch.add(first);
+                long deadline = first.enqueuedNanos + flushIntervalNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || wait <= 0 || !running) break;
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                writerSlots.acquire();
+                writers.execute(() -> {
+                    try {
+                        flush(batch);
+                    } finally {
+                        writerSlots.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The watermark moves past the batch whatever happens to it, or read-your-writes waits would hang.
+    private void flush(List<Pending> batch) {
+        List<Measurement> measurements = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            measurements.add(pending.measurement);
+        }
+
+        long start = System.nanoTime();
+        boolean written = false;
+        try {
+            written = write(measurements);
+        } catch (RuntimeException e) {
+            log.error("Dropping {} measurements after an unexpected failure", batch.size(), e);
+        } finally {
+            if (!written) failed.increment(batch.size());
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            markCompleted(batch.get(0).sequence, batch.get(batch.size() - 1).sequence);
+        }
+    }
+
+    private boolean write(List<Measurement> measurements) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // IGNORE makes a retry after an ambiguous failure harmless.
+                duplicates.increment(measurementService.writePrepared(measurements, ConflictPolicy.IGNORE).size());
+                return true;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Dropping {} measurements after {} attempts", measurements.size(), attempt, e);
+                    return false;
+                }
+                log.warn("Ingest flush failed (attempt {}), retrying: {}", attempt, e.getMessage());
+                if (!sleep(Math.min(100L << Math.min(attempt, 10), MAX_BACKOFF_MILLIS))) return false;
+            } catch (DataAccessException e) {
+                log.error("Dropping {} measurements that cannot be written", measurements.size(), e);
+                return false;
+            }
+        }
+    }
+
+    private void markCompleted(long firstSequence, long lastSequence) {
+        synchronized (completedRanges) {
+            completedRanges.put(firstSequence, lastSequence);
+            Long end;
+            while ((end = completedRanges.remove(committedSequence.get() + 1)) != null) {
+                committedSequence.set(end);
+            }
+        }
+    }
+
+    private double lagSeconds() {
+        Pending oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedNanos) / 1e9;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Pending(Measurement measurement, long sequence, long enqueuedNanos) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.mappers.MeasurementMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans accepted measurements out to SSE subscribers. Publishing only does lock-free
+ * reads (a map lookup and a copy-on-write set per series) and a non-blocking offer into
+ * each subscriber's bounded buffer. Every subscriber is drained by its own virtual
+ * thread, so a slow client only ever loses its own points.
+ */
+@Service
+public class LiveMeasurementHub {
+    public static final String POLICY_DROP = "drop";
+    public static final String POLICY_COALESCE = "coalesce";
+    private static final int MAX_EVENT_BATCH = 500;
+
+    private final Map<UUID, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final SeriesCache seriesCache;
+    private final MeasurementMapper measurementMapper;
+    private final Counter dropped;
+    private final int bufferSize;
+    private final String overflowPolicy;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final int maxSubscribers;
+
+    public LiveMeasurementHub(SeriesCache seriesCache, MeasurementMapper measurementMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${measurement.live.buffer-size:1024}") int bufferSize,
+                              @Value("${measurement.live.overflow-policy:drop}") String overflowPolicy,
+                              @Value("${measurement.live.timeout:PT30M}") Duration timeout,
+                              @Value("${measurement.live.heartbeat:PT15S}") Duration heartbeat,
+                              @Value("${measurement.live.max-subscribers:10000}") int maxSubscribers) {
+        this.seriesCache = seriesCache;
+        this.measurementMapper = measurementMapper;
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        this.maxSubscribers = maxSubscribers;
+        this.dropped = Counter.builder("measurement.live.dropped").register(meterRegistry);
+        Gauge.builder("measurement.live.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(List<UUID> seriesIds) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        List<Series> series = (seriesIds == null || seriesIds.isEmpty())
+                ? seriesCache.getAll()
+                : seriesCache.getAll(seriesIds);
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(emitter, series.stream().map(Series::getId).toList());
+        for (UUID id : subscription.seriesIds) {
+            subscriptions.compute(id, (key, subscribers) -> {
+                Set<Subscription> set = subscribers == null ? new CopyOnWriteArraySet<>() : subscribers;
+                set.add(subscription);
+                return set;
+            });
+        }
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        Thread.ofVirtual().name("live-sse").start(subscription::drain);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppended(MeasurementsAppendedEvent event) {
+        if (subscriptions.isEmpty()) return;
+
+        for (Measurement m : event.getMeasurements()) {
+            Set<Subscription> subscribers = subscriptions.get(m.getSeries().getId());
+            if (subscribers == null || subscribers.isEmpty()) continue;
+
+            MeasurementDto dto = measurementMapper.mapTo(m);
+            for (Subscription subscription : subscribers) {
+                subscription.offer(dto);
+            }
+        }
+    }
+
+    private class Subscription {
+        private final SseEmitter emitter;
+        private final List<UUID> seriesIds;
+        private final BlockingQueue<MeasurementDto> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscription(SseEmitter emitter, List<UUID> seriesIds) {
+            this.emitter = emitter;
+            this.seriesIds = seriesIds;
+        }
+
+        void offer(MeasurementDto dto) {
+            while (!buffer.offer(dto)) {
+                if (POLICY_COALESCE.equals(overflowPolicy)) {
+                    coalesce();
+                } else if (buffer.poll() != null) {
+                    dropped.increment();
+                }
+            }
+        }
+
+        // Collapses the backlog to the latest point per series; a client that cannot keep
+        // up still sees every series move, just at a lower rate.
+        private synchronized void coalesce() {
+            List<MeasurementDto> pending = new ArrayList<>(bufferSize);
+            buffer.drainTo(pending);
+            Map<UUID, MeasurementDto> latest = new LinkedHashMap<>();
+            for (MeasurementDto dto : pending) {
+                latest.put(dto.getSeriesId(), dto);
+            }
+            dropped.increment(pending.size() - latest.size());
+            buffer.addAll(latest.values());
+            if (buffer.remainingCapacity() == 0 && buffer.poll() != null) {
+                dropped.increment();
+            }
+        }
+
+        void drain() {
+            List<MeasurementDto> batch = new ArrayList<>(MAX_EVENT_BATCH);
+            try {
+                emitter.send(SseEmitter.event().comment("subscribed"));
+                while (!closed.get()) {
+                    MeasurementDto first = buffer.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    batch.add(first);
+                    buffer.drainTo(batch, MAX_EVENT_BATCH - 1);
+                    emitter.send(SseEmitter.event().name("measurements").data(batch));
+                    batch.clear();
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            for (UUID id : seriesIds) {
+                subscriptions.computeIfPresent(id, (key, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+            subscriberCount.decrementAndGet();
+        }
+    }
+}
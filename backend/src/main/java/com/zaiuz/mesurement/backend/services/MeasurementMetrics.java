@@ -0,0 +1,63 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measurement-specific meters: committed points per series and the number of rows each
+ * read operation pulls from storage. Per-series counters can be turned off with
+ * {@code measurement.metrics.per-series} when there are too many series for the
+ * metrics backend.
+ */
+@Component
+public class MeasurementMetrics {
+    private final MeterRegistry meterRegistry;
+    private final boolean perSeries;
+    private final Counter ingested;
+    private final Map<UUID, Counter> ingestedBySeries = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowsByOperation = new ConcurrentHashMap<>();
+
+    public MeasurementMetrics(MeterRegistry meterRegistry,
+                              @Value("${measurement.metrics.per-series:true}") boolean perSeries) {
+        this.meterRegistry = meterRegistry;
+        this.perSeries = perSeries;
+        this.ingested = Counter.builder("measurement.ingested").register(meterRegistry);
+    }
+
+    public void recordRows(String operation, long rows) {
+        rowsByOperation.computeIfAbsent(operation, op -> DistributionSummary.builder("measurement.query.rows")
+                        .tag("operation", op)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(rows);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppended(MeasurementsAppendedEvent event) {
+        List<Measurement> measurements = event.getMeasurements();
+        ingested.increment(measurements.size());
+        if (!perSeries) return;
+
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (Measurement m : measurements) {
+            counts.merge(m.getSeries().getId(), 1, Integer::sum);
+        }
+        counts.forEach((seriesId, count) -> ingestedBySeries.computeIfAbsent(seriesId,
+                id -> Counter.builder("measurement.ingested.series")
+                        .tag("series", id.toString())
+                        .register(meterRegistry))
+                .increment(count));
+    }
+}
@@ -1,71 +1,731 @@
 package com.zaiuz.mesurement.backend.services;
 
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
 import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementView;
 import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.AlignedColumnDto;
+import com.zaiuz.mesurement.backend.domain.dto.AlignedMatrixDto;
+import com.zaiuz.mesurement.backend.domain.dto.BatchItemErrorDto;
+import com.zaiuz.mesurement.backend.domain.dto.BatchResultDto;
+import com.zaiuz.mesurement.backend.domain.dto.CursorPageDto;
 import com.zaiuz.mesurement.backend.domain.dto.MeasurementDto;
+import com.zaiuz.mesurement.backend.domain.dto.PointDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesAggregatesDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesPointsDto;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
 import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
-import com.zaiuz.mesurement.backend.repositories.SeriesRepository;
+import com.zaiuz.mesurement.backend.timeseries.ChunkPointCursor;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.GapFill;
+import com.zaiuz.mesurement.backend.timeseries.GorillaCodec;
+import com.zaiuz.mesurement.backend.timeseries.Lttb;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import com.zaiuz.mesurement.backend.timeseries.PointConsumer;
+import com.zaiuz.mesurement.backend.timeseries.SeekCursor;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @Service
 public class MeasurementService {
+    public static final String MODE_MINMAX = "minmax";
+    public static final String MODE_LTTB = "lttb";
+    private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+    private static final Duration MIN_BUCKET = Duration.ofMillis(1);
+    private static final String TIMER = "measurement.service";
+
     private final MeasurementRepository measurementRepository;
-    private final SeriesRepository seriesRepository;
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+    private final MeasurementChunkRepository measurementChunkRepository;
+    private final SeriesCache seriesCache;
+    private final RollupService rollupService;
+    private final HotWindowStore hotWindowStore;
+    private final MeasurementMetrics measurementMetrics;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int bulkChunkSize;
 
-    public MeasurementService(MeasurementRepository measurementRepository, SeriesRepository seriesRepository) {
+    public MeasurementService(MeasurementRepository measurementRepository,
+                              MeasurementJdbcRepository measurementJdbcRepository,
+                              MeasurementChunkRepository measurementChunkRepository,
+                              SeriesCache seriesCache,
+                              RollupService rollupService,
+                              HotWindowStore hotWindowStore,
+                              MeasurementMetrics measurementMetrics,
+                              EntityManager entityManager,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${measurement.bulk.chunk-size:5000}") int bulkChunkSize) {
         this.measurementRepository = measurementRepository;
-        this.seriesRepository = seriesRepository;
+        this.measurementJdbcRepository = measurementJdbcRepository;
+        this.measurementChunkRepository = measurementChunkRepository;
+        this.seriesCache = seriesCache;
+        this.rollupService = rollupService;
+        this.hotWindowStore = hotWindowStore;
+        this.measurementMetrics = measurementMetrics;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
+    @Timed(value = TIMER, extraTags = {"operation", "create"}, histogram = true)
+    @Transactional
     public Measurement create(Measurement measurement) {
-        return measurementRepository.save(measurement);
+        List<Measurement> accepted = new ArrayList<>(1);
+        BatchResultDto result = prepare(List.of(measurement), accepted);
+        if (accepted.isEmpty()) {
+            throw new IllegalArgumentException(result.getErrors().get(0).getReason());
+        }
+        writePrepared(accepted, ConflictPolicy.ERROR);
+        return accepted.get(0);
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "create_batch"}, histogram = true)
+    @Transactional
+    public BatchResultDto createAll(List<Measurement> measurements, ConflictPolicy onConflict) {
+        List<Measurement> accepted = new ArrayList<>(measurements.size());
+        BatchResultDto result = prepare(measurements, accepted);
+        List<Measurement> skipped = writePrepared(accepted, onConflict);
+        if (skipped.isEmpty()) return result;
+
+        Map<Measurement, Integer> positions = new IdentityHashMap<>(measurements.size());
+        for (int i = 0; i < measurements.size(); i++) {
+            if (measurements.get(i) != null) positions.put(measurements.get(i), i);
+        }
+        List<BatchItemErrorDto> errors = new ArrayList<>(result.getErrors());
+        for (Measurement m : skipped) {
+            errors.add(new BatchItemErrorDto(positions.get(m), "duplicate"));
+        }
+        errors.sort(Comparator.comparingInt(BatchItemErrorDto::getIndex));
+        return new BatchResultDto(measurements.size() - errors.size(), errors.size(), errors);
+    }
+
+    // Validates a batch and fills in ids and defaults; valid items are added to accepted.
+    public BatchResultDto prepare(List<Measurement> measurements, List<Measurement> accepted) {
+        Set<UUID> requestedSeriesIds = new HashSet<>();
+        for (Measurement m : measurements) {
+            if (m != null && m.getSeries() != null && m.getSeries().getId() != null) {
+                requestedSeriesIds.add(m.getSeries().getId());
+            }
+        }
+        Map<UUID, Series> knownSeries = seriesCache.getAll(requestedSeriesIds).stream()
+                .collect(Collectors.toMap(Series::getId, Function.identity()));
+
+        OffsetDateTime now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<BatchItemErrorDto> errors = new ArrayList<>();
+        for (int i = 0; i < measurements.size(); i++) {
+            Measurement m = measurements.get(i);
+            String reason = validate(m, knownSeries);
+            if (reason != null) {
+                errors.add(new BatchItemErrorDto(i, reason));
+                continue;
+            }
+
+            m.setId(UUID.randomUUID());
+            m.setSeries(knownSeries.get(m.getSeries().getId()));
+            // Postgres keeps microseconds; truncating here keeps the dedup key identical to the stored one.
+            m.setTimestamp(m.getTimestamp() == null ? now : m.getTimestamp().truncatedTo(ChronoUnit.MICROS));
+            if (m.getCreatedBy() == null) m.setCreatedBy("system");
+            m.setCreatedAt(now);
+            m.setUpdatedAt(now);
+            accepted.add(m);
+        }
+        return new BatchResultDto(measurements.size() - errors.size(), errors.size(), errors);
+    }
+
+    /**
+     * Writes prepared points and publishes the matching events. Returns the points that were
+     * not stored because their (series, timestamp) was already taken; with {@code UPDATE}
+     * those are only the ones superseded later in the same batch. {@code ERROR} lets the
+     * unique violation surface as a DuplicateKeyException.
+     */
+    @Timed(value = TIMER, extraTags = {"operation", "insert"}, histogram = true)
+    @Transactional
+    public List<Measurement> writePrepared(List<Measurement> measurements, ConflictPolicy onConflict) {
+        if (measurements.isEmpty()) return List.of();
+        if (onConflict == ConflictPolicy.ERROR) {
+            Set<String> compacted = compactedKeys(measurements, false);
+            if (!compacted.isEmpty()) {
+                throw new DuplicateKeyException("Already compacted: " + compacted.iterator().next());
+            }
+            measurementJdbcRepository.insertAll(measurements);
+            eventPublisher.publishEvent(new MeasurementsAppendedEvent(measurements));
+            return List.of();
+        }
+
+        // One statement cannot touch the same key twice, so collapse in-batch duplicates first:
+        // IGNORE keeps the first occurrence, UPDATE the last.
+        List<Measurement> unique = new ArrayList<>(measurements.size());
+        List<Measurement> skipped = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>(measurements.size() * 2);
+        for (Measurement m : measurements) {
+            String key = pointKey(m);
+            Integer position = positions.putIfAbsent(key, unique.size());
+            if (position == null) {
+                unique.add(m);
+            } else if (onConflict == ConflictPolicy.UPDATE) {
+                skipped.add(unique.set(position, m));
+            } else {
+                skipped.add(m);
+            }
+        }
+
+        // With UPDATE, compacted matches leave their chunk and are written as new rows.
+        Set<String> compacted = compactedKeys(unique, onConflict == ConflictPolicy.UPDATE);
+        if (onConflict == ConflictPolicy.IGNORE && !compacted.isEmpty()) {
+            List<Measurement> fresh = new ArrayList<>(unique.size());
+            for (Measurement m : unique) {
+                (compacted.contains(pointKey(m)) ? skipped : fresh).add(m);
+            }
+            unique = fresh;
+        }
+
+        MeasurementJdbcRepository.UpsertResult result =
+                measurementJdbcRepository.upsertAll(unique, onConflict == ConflictPolicy.UPDATE);
+        skipped.addAll(result.skipped());
+        if (!result.inserted().isEmpty()) {
+            eventPublisher.publishEvent(new MeasurementsAppendedEvent(result.inserted()));
+        }
+        // Points taken out of a chunk are appended above but replace a value the rollups
+        // already hold, so their buckets are rebuilt like those of updated rows.
+        List<Measurement> changed = new ArrayList<>(result.updated());
+        if (!compacted.isEmpty()) {
+            for (Measurement m : result.inserted()) {
+                if (compacted.contains(pointKey(m))) changed.add(m);
+            }
+        }
+        Map<UUID, List<Measurement>> updated = changed.stream()
+                .collect(Collectors.groupingBy(m -> m.getSeries().getId()));
+        updated.forEach((seriesId, points) -> {
+            OffsetDateTime first = points.stream().map(Measurement::getTimestamp).min(Comparator.naturalOrder()).get();
+            OffsetDateTime last = points.stream().map(Measurement::getTimestamp).max(Comparator.naturalOrder()).get();
+            eventPublisher.publishEvent(new MeasurementRangeChangedEvent(seriesId, first, last));
+        });
+        return skipped;
+    }
+
+    /**
+     * Keys of the points that already sit in a compacted chunk, where the unique key on
+     * measurements cannot see them. Only points before {@code coldBefore()} are looked up;
+     * their chunks stay locked until commit, so compaction cannot race the write. With
+     * {@code take} the matches are also removed from their chunks.
+     */
+    private Set<String> compactedKeys(List<Measurement> measurements, boolean take) {
+        OffsetDateTime coldBefore = measurementChunkRepository.coldBefore();
+        Map<UUID, TreeMap<OffsetDateTime, List<Measurement>>> byChunk = new TreeMap<>();
+        for (Measurement m : measurements) {
+            if (!m.getTimestamp().isBefore(coldBefore)) continue;
+            byChunk.computeIfAbsent(m.getSeries().getId(), id -> new TreeMap<>())
+                    .computeIfAbsent(measurementChunkRepository.windowStart(m.getTimestamp()), t -> new ArrayList<>())
+                    .add(m);
+        }
+
+        Set<String> found = new HashSet<>();
+        byChunk.forEach((seriesId, chunks) -> chunks.forEach((start, points) -> {
+            PointBuffer stored = measurementChunkRepository.lockChunk(seriesId, start);
+            Set<Long> hits = new HashSet<>();
+            for (Measurement m : points) {
+                long micros = EpochMicros.of(m.getTimestamp());
+                if (stored.search(micros) >= 0) {
+                    hits.add(micros);
+                    found.add(pointKey(m));
+                }
+            }
+            if (!take || hits.isEmpty()) return;
+            PointBuffer kept = new PointBuffer(stored.size());
+            for (int i = 0; i < stored.size(); i++) {
+                if (!hits.contains(stored.timestamp(i))) kept.accept(stored.timestamp(i), stored.value(i));
+            }
+            measurementChunkRepository.save(seriesId, start, kept);
+        }));
+        return found;
+    }
+
+    private static String pointKey(Measurement m) {
+        return m.getSeries().getId() + "@" + EpochMicros.of(m.getTimestamp());
     }
 
+    private String validate(Measurement measurement, Map<UUID, Series> knownSeries) {
+        if (measurement == null) return "malformed item";
+        if (measurement.getSeries() == null || measurement.getSeries().getId() == null) return "missing series id";
+        if (!knownSeries.containsKey(measurement.getSeries().getId())) return "unknown series";
+        if (!Double.isFinite(measurement.getValue())) return "value is not a finite number";
+        return null;
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "update"}, histogram = true)
+    @Transactional
     public Measurement update(UUID id, Measurement measurementDetails) {
-        if (get(id).isEmpty()) return null;
+        if (measurementDetails.getSeries() == null || measurementDetails.getSeries().getId() == null
+                || measurementDetails.getTimestamp() == null) {
+            throw new IllegalArgumentException("series and timestamp are required");
+        }
+        measurementDetails.setUpdatedAt(OffsetDateTime.now());
+
+        Optional<MeasurementJdbcRepository.UpdatedRow> updated = measurementJdbcRepository.update(id, measurementDetails);
+        if (updated.isEmpty()) return null;
+
+        MeasurementJdbcRepository.RowKey previous = updated.get().previous();
+        Measurement saved = updated.get().current();
+        seriesCache.get(saved.getSeries().getId()).ifPresent(saved::setSeries);
+        publishRangeChanged(previous.seriesId(), previous.timestamp());
+        publishRangeChanged(saved.getSeries().getId(), saved.getTimestamp());
+        return saved;
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "query"}, histogram = true)
+    @Transactional(readOnly = true)
+    public Page<MeasurementView> query(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                       Pageable pageable) {
+        List<Series> series = resolveSeries(seriesIds);
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+
+        Optional<Page<MeasurementView>> hot = hotWindowStore.query(series, from, to, pageable);
+        Page<MeasurementView> page;
+        if (hot.isPresent()) {
+            page = hot.get();
+        } else {
+            List<UUID> ids = series.stream().map(Series::getId).toList();
+            OffsetDateTime start = from;
+            OffsetDateTime end = to;
+            page = measurementChunkRepository.cursor(ids, EpochMicros.of(from), EpochMicros.of(to),
+                    cold -> cold.hasPoint()
+                            ? queryWithCold(ids, start, end, pageable, cold)
+                            : findViews(ids, start, end, pageable));
+        }
+        measurementMetrics.recordRows("query", page.getNumberOfElements());
+        return page;
+    }
 
-        Measurement measurement = get(id).get();
-        measurement.setValue(measurementDetails.getValue());
-        measurement.setTimestamp(measurementDetails.getTimestamp());
-        measurement.setSeries(measurementDetails.getSeries());
-        measurement.setUpdatedAt(OffsetDateTime.now());
+    /**
+     * Pages through rows and compacted points together, in ascending timestamp order. Rows
+     * are fetched up to the end of the requested page and every chunk in range is decoded
+     * to count the total, so deep pages cost about what OFFSET would.
+     */
+    private Page<MeasurementView> queryWithCold(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                                Pageable pageable, ChunkPointCursor cold) {
+        long start = pageable.getOffset();
+        long end = start + pageable.getPageSize();
+        Page<MeasurementView> rows = findViews(seriesIds, from, to,
+                PageRequest.of(0, (int) Math.min(end, Integer.MAX_VALUE), pageable.getSort()));
 
-        return measurementRepository.save(measurement);
+        List<MeasurementView> content = new ArrayList<>(pageable.getPageSize());
+        Iterator<MeasurementView> rowIterator = rows.getContent().iterator();
+        MeasurementView row = rowIterator.hasNext() ? rowIterator.next() : null;
+        long position = 0;
+        long coldTotal = 0;
+        while (cold.hasPoint() || (row != null && position < end)) {
+            boolean takeCold = cold.hasPoint()
+                    && (row == null || cold.timestamp() < EpochMicros.of(row.timestamp()));
+            if (takeCold) {
+                if (position >= start && position < end) {
+                    content.add(new MeasurementView(null, cold.seriesId(), cold.value(),
+                            EpochMicros.toOffsetDateTime(cold.timestamp())));
+                }
+                coldTotal++;
+                cold.next();
+            } else {
+                if (position >= start && position < end) content.add(row);
+                row = rowIterator.hasNext() ? rowIterator.next() : null;
+            }
+            position++;
+        }
+        return new PageImpl<>(content, pageable, rows.getTotalElements() + coldTotal);
     }
 
-    public Page<Measurement> query(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to, Pageable pageable) {
-        List<Series> series = (seriesIds == null || seriesIds.isEmpty())
-                ? seriesRepository.findAll()
-                : seriesRepository.findAllById(seriesIds);
-        if (from == null) from = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+    // JPA only reaches shard 0; with more shards the pages are merged in (timestamp, id) order.
+    private Page<MeasurementView> findViews(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                            Pageable pageable) {
+        return measurementJdbcRepository.isSharded()
+                ? measurementJdbcRepository.findViewPage(seriesIds, from, to, pageable)
+                : measurementRepository.findViews(seriesIds, from, to, pageable);
+    }
+
+    // Compacted points keep no id or audit columns.
+    private static Measurement compacted(ChunkPointCursor cold, Map<UUID, Series> series) {
+        return Measurement.builder()
+                .series(series.get(cold.seriesId()))
+                .value(cold.value())
+                .timestamp(EpochMicros.toOffsetDateTime(cold.timestamp()))
+                .build();
+    }
+
+    // Invalid arguments must not mark the caller's read-only transaction, which the controller
+    // answers with 400 and then commits.
+    @Timed(value = TIMER, extraTags = {"operation", "scroll"}, histogram = true)
+    @Transactional(readOnly = true, noRollbackFor = IllegalArgumentException.class)
+    public CursorPageDto<Measurement> scroll(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                             String after, int size) {
+        SeekCursor cursor = (after == null || after.isEmpty()) ? null : SeekCursor.decode(after);
+        Map<UUID, Series> series = resolveSeries(seriesIds).stream()
+                .collect(Collectors.toMap(Series::getId, Function.identity()));
+        if (from == null) from = EPOCH;
         if (to == null) to = OffsetDateTime.now();
-        return measurementRepository.findBySeriesInAndTimestampBetween(series, from, to, pageable);
+        if (series.isEmpty()) return new CursorPageDto<>(List.of(), size, null);
+
+        List<Measurement> rows = measurementJdbcRepository.findPageAfter(series, from, to, cursor, size + 1);
+        measurementMetrics.recordRows("scroll", rows.size());
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Measurement last = rows.get(size - 1);
+            next = new SeekCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        return new CursorPageDto<>(rows, size, next);
+    }
+
+    // Entities are detached as soon as the sink has seen them, so the persistence
+    // context stays empty no matter how many rows the cursor walks through. Sharded
+    // rows are read over JDBC and never enter it.
+    @Timed(value = TIMER, extraTags = {"operation", "export"}, histogram = true)
+    @Transactional(readOnly = true)
+    public void export(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to, Consumer<Measurement> sink) {
+        Map<UUID, Series> series = resolveSeries(seriesIds).stream()
+                .collect(Collectors.toMap(Series::getId, Function.identity()));
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        if (series.isEmpty()) return;
+
+        OffsetDateTime start = from;
+        OffsetDateTime end = to;
+        long rows = measurementChunkRepository.cursor(series.keySet(), EpochMicros.of(from), EpochMicros.of(to),
+                cold -> exportMerged(series, start, end, cold, sink));
+        measurementMetrics.recordRows("export", rows);
     }
 
+    // Rows and compacted points of the export in timestamp order; returns how many were passed on.
+    private long exportMerged(Map<UUID, Series> series, OffsetDateTime from, OffsetDateTime to,
+                              ChunkPointCursor cold, Consumer<Measurement> sink) {
+        long rows = 0;
+        boolean sharded = measurementJdbcRepository.isSharded();
+        try (Stream<Measurement> measurements = sharded
+                ? measurementJdbcRepository.streamRows(series, from, to)
+                : measurementRepository.streamBySeriesIds(series.keySet(), from, to)) {
+            Iterator<Measurement> iterator = measurements.iterator();
+            while (iterator.hasNext()) {
+                Measurement m = iterator.next();
+                long micros = EpochMicros.of(m.getTimestamp());
+                for (; cold.hasPoint() && cold.timestamp() < micros; cold.next()) {
+                    sink.accept(compacted(cold, series));
+                    rows++;
+                }
+                sink.accept(m);
+                if (!sharded) entityManager.detach(m);
+                rows++;
+            }
+        }
+        for (; cold.hasPoint(); cold.next()) {
+            sink.accept(compacted(cold, series));
+            rows++;
+        }
+        return rows;
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "scan"}, histogram = true)
+    @Transactional(readOnly = true)
+    public void scan(UUID seriesId, OffsetDateTime from, OffsetDateTime to, PointConsumer consumer) {
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        scanPoints(seriesId, from, to, consumer);
+    }
+
+    // Read-write on purpose, so it is never routed to a replica: the columnar endpoint reads its ETag
+    // from the primary before streaming, and the body has to match it.
+    @Timed(value = TIMER, extraTags = {"operation", "scan"}, histogram = true)
+    @Transactional
+    public void scanPrimary(UUID seriesId, OffsetDateTime from, OffsetDateTime to, PointConsumer consumer) {
+        scan(seriesId, from, to, consumer);
+    }
+
+    /**
+     * Reduces each series to at most {@code maxPoints} points, by LTTB or as per-bucket
+     * min/max. Without a bucket the range is split into {@code maxPoints} buckets; with
+     * one, a range holding more than {@code maxPoints} buckets is rejected.
+     */
+    // See scroll for noRollbackFor.
+    @Timed(value = TIMER, extraTags = {"operation", "downsample"}, histogram = true)
+    @Transactional(readOnly = true, noRollbackFor = IllegalArgumentException.class)
+    public List<SeriesPointsDto> downsample(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                            Integer maxPoints, Duration bucket, String mode) {
+        List<UUID> ids = resolveSeries(seriesIds).stream().map(Series::getId).toList();
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        if (ids.isEmpty()) return List.of();
+
+        if (MODE_LTTB.equals(mode)) {
+            List<SeriesPointsDto> result = new ArrayList<>(ids.size());
+            for (UUID id : ids) {
+                PointBuffer points = new PointBuffer();
+                scanPoints(id, from, to, points);
+                List<PointDto> selected = new ArrayList<>();
+                for (int index : Lttb.select(points, maxPoints)) {
+                    selected.add(PointDto.builder()
+                            .timestamp(EpochMicros.toOffsetDateTime(points.timestamp(index)))
+                            .value(points.value(index))
+                            .build());
+                }
+                result.add(new SeriesPointsDto(id, MODE_LTTB, selected));
+            }
+            return result;
+        }
+
+        if (bucket == null) {
+            bucket = Duration.between(from, to).dividedBy(Math.max(maxPoints, 1));
+        }
+        if (bucket.compareTo(MIN_BUCKET) < 0) bucket = MIN_BUCKET;
+        long count = Duration.between(from, to).dividedBy(bucket);
+        if (count > maxPoints) throw new IllegalArgumentException("Too many buckets: " + count);
+        Map<UUID, List<PointDto>> buckets = measurementJdbcRepository.aggregateBuckets(ids, from, to, bucket);
+        measurementMetrics.recordRows("downsample", buckets.values().stream().mapToLong(List::size).sum());
+        return ids.stream()
+                .map(id -> new SeriesPointsDto(id, MODE_MINMAX, buckets.getOrDefault(id, List.of())))
+                .toList();
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "aggregate"}, histogram = true)
+    @Transactional(readOnly = true)
+    public List<SeriesAggregatesDto> aggregate(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                               Duration step, Integer maxPoints) {
+        List<UUID> ids = resolveSeries(seriesIds).stream().map(Series::getId).toList();
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        if (ids.isEmpty()) return List.of();
+
+        if (step == null) {
+            step = Duration.between(from, to).dividedBy(Math.max(maxPoints, 1));
+            if (step.compareTo(MIN_BUCKET) < 0) step = MIN_BUCKET;
+            step = rollupService.alignStep(step);
+        }
+        List<SeriesAggregatesDto> result = rollupService.aggregate(ids, from, to, step);
+        measurementMetrics.recordRows("aggregate", result.stream().mapToLong(r -> r.getBuckets().size()).sum());
+        return result;
+    }
+
+    /**
+     * Buckets [from, to) into {@code step}-wide rows starting at {@code from}, one column
+     * per series holding the bucket average. Without a step the range is split into
+     * {@code maxPoints} buckets; with one, more than {@code maxPoints} buckets is rejected.
+     */
+    // See scroll for noRollbackFor.
+    @Timed(value = TIMER, extraTags = {"operation", "aligned"}, histogram = true)
+    @Transactional(readOnly = true, noRollbackFor = IllegalArgumentException.class)
+    public AlignedMatrixDto aligned(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                    Duration step, int maxPoints, GapFill fill) {
+        List<UUID> ids = resolveSeries(seriesIds).stream().map(Series::getId).toList();
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        if (!to.isAfter(from)) throw new IllegalArgumentException("Empty range");
+
+        Duration span = Duration.between(from, to);
+        if (step == null) {
+            // Rounded up to whole microseconds, so that maxPoints buckets always cover the span.
+            long micros = Math.ceilDiv(Math.ceilDiv(span.toNanos(), 1000), Math.max(maxPoints, 1));
+            step = Duration.ofNanos(micros * 1000);
+            if (step.compareTo(MIN_BUCKET) < 0) step = MIN_BUCKET;
+        } else if (step.toNanos() < 1000) {
+            throw new IllegalArgumentException("Step below 1 microsecond: " + step);
+        }
+        long buckets = (span.toNanos() + step.toNanos() - 1) / step.toNanos();
+        if (buckets > maxPoints) throw new IllegalArgumentException("Too many buckets: " + buckets);
+
+        List<OffsetDateTime> timestamps = new ArrayList<>((int) buckets);
+        for (int i = 0; i < buckets; i++) {
+            timestamps.add(from.plus(step.multipliedBy(i)));
+        }
+
+        Map<UUID, double[]> averages = ids.isEmpty()
+                ? Map.of()
+                : measurementJdbcRepository.alignedAverages(ids, from, to, step, (int) buckets);
+        List<AlignedColumnDto> columns = new ArrayList<>(ids.size());
+        long filled = 0;
+        for (UUID id : ids) {
+            double[] values = averages.get(id);
+            for (double v : values) {
+                if (!Double.isNaN(v)) filled++;
+            }
+            fill.apply(values);
+            List<Double> column = new ArrayList<>(values.length);
+            for (double v : values) {
+                column.add(Double.isNaN(v) ? null : v);
+            }
+            columns.add(new AlignedColumnDto(id, column));
+        }
+        measurementMetrics.recordRows("aligned", filled);
+        return new AlignedMatrixDto(step.toString(), fill.name().toLowerCase(), timestamps, columns);
+    }
+
+    private void publishRangeChanged(UUID seriesId, OffsetDateTime timestamp) {
+        eventPublisher.publishEvent(new MeasurementRangeChangedEvent(seriesId, timestamp, timestamp));
+    }
+
+    private void scanPoints(UUID seriesId, OffsetDateTime from, OffsetDateTime to, PointConsumer consumer) {
+        long[] rows = {0};
+        measurementJdbcRepository.scanSeries(seriesId, from, to, (epochMicros, value) -> {
+            rows[0]++;
+            consumer.accept(epochMicros, value);
+        });
+        measurementMetrics.recordRows("scan", rows[0]);
+    }
+
+    public List<Series> resolveSeries(List<UUID> seriesIds) {
+        return (seriesIds == null || seriesIds.isEmpty())
+                ? seriesCache.getAll()
+                : seriesCache.getAll(seriesIds);
+    }
+
+    @Transactional(readOnly = true)
     public List<Measurement> getAll() {
         return measurementRepository.findAll();
     }
 
-    public Optional<Measurement> get(UUID id) {
-        return measurementRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<MeasurementView> get(UUID id) {
+        return measurementJdbcRepository.isSharded()
+                ? measurementJdbcRepository.findViewById(id)
+                : measurementRepository.findViewById(id);
+    }
+
+    @Timed(value = TIMER, extraTags = {"operation", "delete"}, histogram = true)
+    @Transactional
+    public boolean delete(UUID id) {
+        Optional<MeasurementJdbcRepository.RowKey> deleted = measurementJdbcRepository.deleteById(id);
+        deleted.ifPresent(row -> publishRangeChanged(row.seriesId(), row.timestamp()));
+        return deleted.isPresent();
+    }
+
+    /**
+     * Deletes every measurement of the series in [from, to). Each chunk commits on its
+     * own, so row locks are held for one chunk at a time; derived data is rebuilt per
+     * chunk. If it fails halfway, the chunks already committed stay deleted.
+     */
+    @Timed(value = TIMER, extraTags = {"operation", "delete_range"}, histogram = true)
+    public long deleteRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        long cold = rewriteCold(seriesId, from, to, null);
+        return cold + runChunked(seriesId, after -> measurementJdbcRepository.deleteChunk(seriesId, from, to, after,
+                bulkChunkSize));
+    }
+
+    /**
+     * Sets value = value * scale + offset for every measurement of the series in [from, to),
+     * chunked like deleteRange. The correction is linear, so the range's current extremes
+     * become the extremes of the result; if those leave the series bounds or overflow, it
+     * is rejected with an {@link IllegalArgumentException} before anything is written.
+     */
+    @Timed(value = TIMER, extraTags = {"operation", "correct_range"}, histogram = true)
+    public long correctRange(UUID seriesId, OffsetDateTime from, OffsetDateTime to, double scale, double offset) {
+        Series series = resolveSeries(List.of(seriesId)).get(0);
+        Optional<MeasurementJdbcRepository.ValueRange> range = measurementJdbcRepository.valueRange(seriesId, from, to);
+        if (range.isPresent()) {
+            double low = range.get().min() * scale + offset;
+            double high = range.get().max() * scale + offset;
+            if (!Double.isFinite(low) || !Double.isFinite(high)) {
+                throw new IllegalArgumentException("Corrected values overflow");
+            }
+            if (Math.min(low, high) < series.getMinValue() || Math.max(low, high) > series.getMaxValue()) {
+                throw new IllegalArgumentException("Corrected values out of series bounds");
+            }
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        long cold = rewriteCold(seriesId, from, to, value -> value * scale + offset);
+        return cold + runChunked(seriesId, after -> measurementJdbcRepository.correctChunk(seriesId, from, to, after,
+                bulkChunkSize, scale, offset, now));
     }
 
-    public void delete(UUID id) {
-        measurementRepository.deleteById(id);
+    // Applies a range delete (null correction) or correction to compacted chunks, in one transaction.
+    private long rewriteCold(UUID seriesId, OffsetDateTime from, OffsetDateTime to, DoubleUnaryOperator correction) {
+        if (!from.isBefore(measurementChunkRepository.coldBefore())) return 0;
+        long fromMicros = EpochMicros.of(from);
+        long toMicros = EpochMicros.of(to);
+        return transactionTemplate.execute(status -> {
+            long affected = 0;
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            List<MeasurementChunkRepository.StoredChunk> chunks = measurementChunkRepository.lockRange(seriesId, from, to);
+            for (MeasurementChunkRepository.StoredChunk chunk : chunks) {
+                PointBuffer points = new PointBuffer(GorillaCodec.count(chunk.data()));
+                GorillaCodec.decode(chunk.data(), points);
+                PointBuffer rewritten = new PointBuffer(points.size());
+                int changed = 0;
+                for (int i = 0; i < points.size(); i++) {
+                    long t = points.timestamp(i);
+                    double value = points.value(i);
+                    if (t >= fromMicros && t < toMicros) {
+                        changed++;
+                        first = Math.min(first, t);
+                        last = Math.max(last, t);
+                        if (correction == null) continue;
+                        value = correction.applyAsDouble(value);
+                    }
+                    rewritten.accept(t, value);
+                }
+                if (changed > 0) {
+                    measurementChunkRepository.save(seriesId, chunk.start(), rewritten);
+                    affected += changed;
+                }
+            }
+            if (affected > 0) {
+                eventPublisher.publishEvent(new MeasurementRangeChangedEvent(seriesId,
+                        EpochMicros.toOffsetDateTime(first), EpochMicros.toOffsetDateTime(last)));
+            }
+            return affected;
+        });
     }
 
-    public void delete(Measurement measurement) {
-        measurementRepository.delete(measurement);
+    private long runChunked(UUID seriesId, Function<MeasurementJdbcRepository.Chunk, MeasurementJdbcRepository.Chunk> step) {
+        long total = 0;
+        MeasurementJdbcRepository.Chunk chunk = null;
+        do {
+            MeasurementJdbcRepository.Chunk after = chunk;
+            chunk = transactionTemplate.execute(status -> {
+                MeasurementJdbcRepository.Chunk next = step.apply(after);
+                if (next.rows() > 0) {
+                    eventPublisher.publishEvent(new MeasurementRangeChangedEvent(seriesId, next.first(), next.last()));
+                }
+                return next;
+            });
+            total += chunk.rows();
+        } while (chunk.rows() == bulkChunkSize);
+        return total;
     }
 }
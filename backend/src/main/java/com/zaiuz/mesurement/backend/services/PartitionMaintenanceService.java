@@ -0,0 +1,118 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementShards;
+import com.zaiuz.mesurement.backend.repositories.PartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps monthly partitions of {@code measurements} ahead of the clock and drops the
+ * ones that are entirely older than the retention period. Dropping a partition is a
+ * catalog operation, so expiring a month of data costs the same however many rows it
+ * holds. Compacted chunks of those months are deleted with it, and so are expired rows
+ * of the default partition, which catches months that had no partition when they were
+ * written. Creating a partition moves such rows out of the default first. Rollups are
+ * left in place and outlive the raw rows. Every measurement shard is maintained the same way.
+ */
+@Service
+public class PartitionMaintenanceService {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private final List<PartitionRepository> partitionRepositories;
+    private final MeasurementChunkRepository chunkRepository;
+    private final SeriesChangeTracker changeTracker;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public PartitionMaintenanceService(PartitionRepository partitionRepository,
+                                       MeasurementShards shards,
+                                       MeasurementChunkRepository chunkRepository,
+                                       SeriesChangeTracker changeTracker,
+                                       @Value("${measurement.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${measurement.retention.months:0}") int retentionMonths) {
+        this.partitionRepositories = new ArrayList<>(List.of(partitionRepository));
+        for (int shard = 1; shard < shards.count(); shard++) {
+            partitionRepositories.add(new PartitionRepository(shards.get(shard)));
+        }
+        this.chunkRepository = chunkRepository;
+        this.changeTracker = changeTracker;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            maintain();
+        } catch (DataAccessException e) {
+            log.warn("Partition maintenance skipped at startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${measurement.partitions.cron:0 0 3 * * *}", zone = "UTC")
+    public void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        // Shards share the layout of shard 0: without partitions there, there is nothing to do anywhere.
+        if (!maintain(0, partitionRepositories.getFirst(), current)) return;
+        for (int shard = 1; shard < partitionRepositories.size(); shard++) {
+            maintain(shard, partitionRepositories.get(shard), current);
+        }
+
+        if (retentionMonths <= 0) return;
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        int expired = chunkRepository.deleteBefore(oldestKept.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+        if (expired > 0) {
+            log.info("Dropped {} compacted chunks older than {}", expired, oldestKept);
+            changeTracker.invalidateAll();
+        }
+    }
+
+    private boolean maintain(int shard, PartitionRepository partitionRepository, YearMonth current) {
+        if (!partitionRepository.isPartitioned()) {
+            log.debug("measurements is not partitioned on shard {}, nothing to maintain", shard);
+            return false;
+        }
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                partitionRepository.createMonth(month);
+            } catch (DataAccessException e) {
+                // E.g. a lock timeout while moving rows out of the default partition; retried on the next run.
+                log.warn("Could not create partition for {} on shard {}: {}", month, shard, e.getMessage());
+            }
+        }
+
+        if (retentionMonths <= 0) return true;
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : partitionRepository.findMonthlyPartitions()) {
+            if (month.isBefore(oldestKept)) {
+                log.info("Dropping measurements partition for {} on shard {} (retention {} months)",
+                        month, shard, retentionMonths);
+                partitionRepository.dropMonth(month);
+                changeTracker.invalidateAll();
+            }
+        }
+        OffsetDateTime cutoff = oldestKept.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+        int expired = partitionRepository.deleteDefaultBefore(cutoff);
+        if (expired > 0) {
+            log.info("Deleted {} measurements older than {} from the default partition on shard {}",
+                    expired, oldestKept, shard);
+            changeTracker.invalidateAll();
+        }
+        return true;
+    }
+}
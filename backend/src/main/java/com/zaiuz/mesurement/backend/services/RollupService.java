@@ -0,0 +1,125 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.MeasurementRollup;
+import com.zaiuz.mesurement.backend.domain.RollupResolution;
+import com.zaiuz.mesurement.backend.domain.dto.AggregateBucketDto;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesAggregatesDto;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRollupRepository;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class RollupService {
+    private static final RollupResolution[] COARSEST_FIRST = {
+            RollupResolution.DAY, RollupResolution.HOUR, RollupResolution.MINUTE
+    };
+    private static final Comparator<MeasurementRollup> LOCK_ORDER = Comparator
+            .comparing(MeasurementRollup::getSeriesId)
+            .thenComparing(MeasurementRollup::getResolution)
+            .thenComparingLong(MeasurementRollup::getBucketMicros);
+
+    private final MeasurementRollupRepository rollupRepository;
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+
+    public RollupService(MeasurementRollupRepository rollupRepository,
+                         MeasurementJdbcRepository measurementJdbcRepository) {
+        this.rollupRepository = rollupRepository;
+        this.measurementJdbcRepository = measurementJdbcRepository;
+    }
+
+    // Runs inside the ingest transaction: the points are folded per bucket first, so a
+    // batch touches every (series, resolution, bucket) row exactly once.
+    @EventListener
+    public void onAppended(MeasurementsAppendedEvent event) {
+        Map<RollupKey, MeasurementRollup> partials = new HashMap<>();
+        for (Measurement m : event.getMeasurements()) {
+            UUID seriesId = m.getSeries().getId();
+            long micros = EpochMicros.of(m.getTimestamp());
+            for (RollupResolution resolution : RollupResolution.values()) {
+                RollupKey key = new RollupKey(seriesId, resolution, resolution.bucketStart(micros));
+                MeasurementRollup rollup = partials.get(key);
+                if (rollup == null) {
+                    partials.put(key, MeasurementRollup.of(seriesId, resolution, micros, m.getValue()));
+                } else {
+                    rollup.add(micros, m.getValue());
+                }
+            }
+        }
+
+        // A stable order keeps concurrent batches from deadlocking on the same rows.
+        List<MeasurementRollup> rollups = new ArrayList<>(partials.values());
+        rollups.sort(LOCK_ORDER);
+        rollupRepository.upsertAll(rollups);
+    }
+
+    // Updates and deletes are not invertible for min/max/first/last, so the affected
+    // buckets are recomputed from the stored rows and compacted points instead.
+    @EventListener
+    public void onRangeChanged(MeasurementRangeChangedEvent event) {
+        long fromMicros = EpochMicros.of(event.getFrom());
+        long toMicros = EpochMicros.of(event.getTo());
+        for (RollupResolution resolution : RollupResolution.values()) {
+            long start = resolution.bucketStart(fromMicros);
+            long end = resolution.bucketStart(toMicros) + resolution.widthMicros();
+            rollupRepository.rebuild(event.getSeriesId(), resolution,
+                    EpochMicros.toOffsetDateTime(start), EpochMicros.toOffsetDateTime(end));
+        }
+    }
+
+    public List<SeriesAggregatesDto> aggregate(List<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to,
+                                               Duration step) {
+        RollupResolution resolution = coarsestFor(step);
+        Map<UUID, List<AggregateBucketDto>> buckets;
+        if (resolution == null) {
+            buckets = measurementJdbcRepository.aggregate(seriesIds, from, to, step);
+        } else {
+            long start = resolution.bucketStart(EpochMicros.of(from));
+            buckets = rollupRepository.aggregate(seriesIds, resolution, EpochMicros.toOffsetDateTime(start), to, step);
+        }
+
+        String resolutionKey = resolution == null ? "raw" : resolution.getKey();
+        return seriesIds.stream()
+                .map(id -> new SeriesAggregatesDto(id, resolutionKey, step.toString(),
+                        buckets.getOrDefault(id, List.of())))
+                .toList();
+    }
+
+    // Rounds a requested step up so that it is a whole number of rollup buckets.
+    public Duration alignStep(Duration step) {
+        for (RollupResolution resolution : COARSEST_FIRST) {
+            Duration width = resolution.getWidth();
+            if (step.compareTo(width) >= 0) {
+                long buckets = (step.toNanos() + width.toNanos() - 1) / width.toNanos();
+                return width.multipliedBy(buckets);
+            }
+        }
+        return step;
+    }
+
+    private static RollupResolution coarsestFor(Duration step) {
+        for (RollupResolution resolution : COARSEST_FIRST) {
+            Duration width = resolution.getWidth();
+            if (step.compareTo(width) >= 0 && step.toNanos() % width.toNanos() == 0) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    private record RollupKey(UUID seriesId, RollupResolution resolution, long bucketMicros) {
+    }
+}
@@ -0,0 +1,169 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.config.PrimaryReads;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.SeriesChangeRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for series metadata. The cached entities are detached and shared
+ * between requests, so callers must treat them as read-only. Writers go through
+ * {@link SeriesService}, which invalidates the cache. Loads read the primary: an entry
+ * refilled from a lagging replica right after an invalidation would stay stale.
+ *
+ * <p>Writes on other instances are picked up through the series metadata version in
+ * {@code series_changes}: the cache compares it with the version it was filled at,
+ * at least every {@code refresh} and whenever a caller asks for a newer one, and
+ * starts over when it moved.
+ */
+@Component
+public class SeriesCache {
+    private final SeriesRepository seriesRepository;
+    private final SeriesChangeRepository changeRepository;
+    private final PrimaryReads primaryReads;
+    private final int maxEntries;
+    private final long refreshNanos;
+    private final Map<UUID, Series> byId = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private volatile List<Series> all;
+    private volatile long syncedVersion = -1;
+    private volatile long syncedAt;
+
+    public SeriesCache(SeriesRepository seriesRepository, SeriesChangeRepository changeRepository,
+                       PrimaryReads primaryReads, MeterRegistry meterRegistry,
+                       @Value("${measurement.series-cache.max-entries:10000}") int maxEntries,
+                       @Value("${measurement.series-cache.refresh:PT5S}") Duration refresh) {
+        this.seriesRepository = seriesRepository;
+        this.changeRepository = changeRepository;
+        this.primaryReads = primaryReads;
+        this.maxEntries = maxEntries;
+        this.refreshNanos = refresh.toNanos();
+        this.syncedAt = System.nanoTime() - refreshNanos;
+
+        FunctionCounter.builder("series.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("series.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("series.cache.size", byId, Map::size).register(meterRegistry);
+    }
+
+    public Optional<Series> get(UUID id) {
+        syncIfDue();
+        Series series = byId.get(id);
+        if (series != null) {
+            hits.incrementAndGet();
+            return Optional.of(series);
+        }
+
+        misses.incrementAndGet();
+        long loadedAt = version.get();
+        Optional<Series> loaded = primaryReads.get(() -> seriesRepository.findById(id));
+        loaded.ifPresent(s -> put(s, loadedAt));
+        return loaded;
+    }
+
+    public List<Series> getAll() {
+        syncIfDue();
+        List<Series> snapshot = all;
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+
+        misses.incrementAndGet();
+        long loadedAt = version.get();
+        snapshot = primaryReads.get(() -> List.copyOf(seriesRepository.findAll()));
+        if (snapshot.size() <= maxEntries && version.get() == loadedAt) {
+            all = snapshot;
+            snapshot.forEach(s -> put(s, loadedAt));
+        }
+        return snapshot;
+    }
+
+    // Each series at most once, however often its id is requested.
+    public List<Series> getAll(Collection<UUID> ids) {
+        syncIfDue();
+        Set<UUID> unique = new LinkedHashSet<>(ids);
+        List<Series> found = new ArrayList<>(unique.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : unique) {
+            Series series = byId.get(id);
+            if (series != null) {
+                found.add(series);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.addAndGet(found.size());
+        if (missing.isEmpty()) return found;
+
+        misses.addAndGet(missing.size());
+        long loadedAt = version.get();
+        for (Series series : primaryReads.get(() -> seriesRepository.findAllById(missing))) {
+            put(series, loadedAt);
+            found.add(series);
+        }
+        return found;
+    }
+
+    public void invalidate(UUID id) {
+        version.incrementAndGet();
+        all = null;
+        byId.remove(id);
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        all = null;
+        byId.clear();
+    }
+
+    /**
+     * Makes sure the cache holds nothing older than the given series metadata version,
+     * e.g. one read next to a response body, and returns it for use in a tag.
+     */
+    public long syncTo(long seriesVersion) {
+        if (seriesVersion > syncedVersion) sync();
+        return seriesVersion;
+    }
+
+    private void syncIfDue() {
+        if (System.nanoTime() - syncedAt >= refreshNanos) sync();
+    }
+
+    // Read on the primary, before any entry is loaded again, so entries are never older than the version.
+    private synchronized void sync() {
+        long current = primaryReads.get(changeRepository::seriesVersion);
+        if (current != syncedVersion) {
+            invalidateAll();
+            syncedVersion = current;
+        }
+        syncedAt = System.nanoTime();
+    }
+
+    // Skips the put if an invalidation happened while the entity was being loaded.
+    private void put(Series series, long loadedAt) {
+        if (version.get() != loadedAt) return;
+        if (byId.size() >= maxEntries && !byId.containsKey(series.getId())) return;
+        byId.put(series.getId(), series);
+    }
+}
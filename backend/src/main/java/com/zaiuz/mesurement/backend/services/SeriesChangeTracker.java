@@ -0,0 +1,145 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.SeriesChangeRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesChangeRepository.HourKey;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Change watermark per series and hour, used to derive ETags for read endpoints. Changes
+ * are recorded in {@code series_changes} inside the transaction that makes them, so
+ * every instance and every replica sees a tag move together with the data behind it,
+ * and appends to the current hour leave older windows' tags alone.
+ *
+ * <p>Tags also carry the series metadata version, read in the same transaction. The
+ * series cache is brought up to that version first, so a body built from cached series
+ * is never older than its tag, and every instance issues the same tag for the same state.
+ */
+@Service
+public class SeriesChangeTracker {
+    private static final long HOUR_MICROS = Duration.ofHours(1).toNanos() / 1000;
+    // Ranges wider than this are recorded for the whole series instead of hour by hour.
+    private static final long MAX_TRACKED_HOURS = 24 * 31;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+    private static final OffsetDateTime END_OF_TIME = OffsetDateTime.parse("9999-12-31T00:00:00Z");
+    private static final Comparator<HourKey> LOCK_ORDER = Comparator
+            .comparing(HourKey::seriesId)
+            .thenComparing(HourKey::hour);
+
+    private final SeriesChangeRepository changeRepository;
+    private final SeriesCache seriesCache;
+    private final Duration horizon;
+    private final Duration settle;
+    private final Duration maxAge;
+
+    public SeriesChangeTracker(SeriesChangeRepository changeRepository, SeriesCache seriesCache,
+                               @Value("${measurement.http-cache.horizon:P7D}") Duration horizon,
+                               @Value("${measurement.http-cache.settle:PT5M}") Duration settle,
+                               @Value("${measurement.http-cache.max-age:PT1H}") Duration maxAge) {
+        this.changeRepository = changeRepository;
+        this.seriesCache = seriesCache;
+        this.horizon = horizon;
+        this.settle = settle;
+        this.maxAge = maxAge;
+    }
+
+    // Runs inside the ingest transaction, like the rollups.
+    @EventListener
+    public void onAppended(MeasurementsAppendedEvent event) {
+        Set<HourKey> touched = new HashSet<>();
+        for (Measurement m : event.getMeasurements()) {
+            touched.add(new HourKey(m.getSeries().getId(), hourStart(hourOf(m.getTimestamp()))));
+        }
+        List<HourKey> keys = new ArrayList<>(touched);
+        keys.sort(LOCK_ORDER);
+        changeRepository.record(keys);
+    }
+
+    @EventListener
+    public void onRangeChanged(MeasurementRangeChangedEvent event) {
+        long first = hourOf(event.getFrom());
+        long last = hourOf(event.getTo());
+        if (last - first > MAX_TRACKED_HOURS) {
+            changeRepository.recordWhole(event.getSeriesId());
+            return;
+        }
+        List<HourKey> keys = new ArrayList<>();
+        for (long hour = first; hour <= last; hour++) {
+            keys.add(new HourKey(event.getSeriesId(), hourStart(hour)));
+        }
+        changeRepository.record(keys);
+    }
+
+    // For changes that bypass the events, such as dropping a partition.
+    public void invalidateAll() {
+        changeRepository.recordWhole(SeriesChangeRepository.ALL_SERIES);
+    }
+
+    /**
+     * Reads the watermark through the caller's transaction, so a tag computed next to a
+     * response body describes the same database state.
+     *
+     * @param representation distinguishes responses that share a URL but not a body,
+     *                       e.g. JSON and the columnar format
+     */
+    public String etag(Collection<UUID> seriesIds, OffsetDateTime from, OffsetDateTime to, String representation) {
+        OffsetDateTime fromHour = from == null ? EPOCH : hourStart(hourOf(from));
+        OffsetDateTime toHour = to == null ? END_OF_TIME : hourStart(hourOf(to));
+        String watermark = changeRepository.watermark(seriesIds, fromHour, toHour,
+                OffsetDateTime.now().minus(horizon));
+        return "\"" + representation + "-" + seriesVersion() + "-" + watermark + "\"";
+    }
+
+    public String seriesEtag() {
+        return "\"series-" + seriesVersion() + "\"";
+    }
+
+    // Called by series writes inside their transaction; caches and tags on every instance follow.
+    public void seriesChanged() {
+        changeRepository.recordWhole(SeriesChangeRepository.SERIES_METADATA);
+    }
+
+    // Windows that ended a while ago rarely change and may be cached; anything else must
+    // be revalidated, which is cheap thanks to the ETag.
+    public CacheControl cacheControl(OffsetDateTime to) {
+        if (to != null && to.isBefore(OffsetDateTime.now().minus(settle))) {
+            return CacheControl.maxAge(maxAge);
+        }
+        return CacheControl.noCache();
+    }
+
+    // Old hours are folded into a single row per series that every window reaching back that far picks up.
+    @Scheduled(fixedDelayString = "${measurement.http-cache.prune-interval:PT1H}")
+    public void prune() {
+        changeRepository.foldBefore(hourStart(hourOf(OffsetDateTime.now().minus(horizon))));
+    }
+
+    private long seriesVersion() {
+        return seriesCache.syncTo(changeRepository.seriesVersion());
+    }
+
+    private static long hourOf(OffsetDateTime timestamp) {
+        return Math.floorDiv(EpochMicros.of(timestamp), HOUR_MICROS);
+    }
+
+    private static OffsetDateTime hourStart(long hour) {
+        return EpochMicros.toOffsetDateTime(hour * HOUR_MICROS);
+    }
+}
@@ -1,8 +1,11 @@
 package com.zaiuz.mesurement.backend.services;
 
+import com.zaiuz.mesurement.backend.config.PrimaryReads;
 import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
 import com.zaiuz.mesurement.backend.repositories.SeriesRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -12,21 +15,38 @@ import java.util.UUID;
 @Service
 public class SeriesService {
     private final SeriesRepository seriesRepository;
+    private final SeriesCache seriesCache;
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+    private final PrimaryReads primaryReads;
+    private final SeriesChangeTracker changeTracker;
 
-    public SeriesService(SeriesRepository seriesRepository) {
+    public SeriesService(SeriesRepository seriesRepository, SeriesCache seriesCache,
+                         MeasurementJdbcRepository measurementJdbcRepository, PrimaryReads primaryReads,
+                         SeriesChangeTracker changeTracker) {
         this.seriesRepository = seriesRepository;
+        this.seriesCache = seriesCache;
+        this.measurementJdbcRepository = measurementJdbcRepository;
+        this.primaryReads = primaryReads;
+        this.changeTracker = changeTracker;
     }
 
+    @Transactional
     public Series create(Series series) {
         series.setUpdatedAt(OffsetDateTime.now());
 
-        return seriesRepository.save(series);
+        Series saved = seriesRepository.save(series);
+        changeTracker.seriesChanged();
+        seriesCache.invalidate(saved.getId());
+        return saved;
     }
 
+    // The entity is read from the primary, so the changes apply to its latest committed state.
+    @Transactional
     public Series update(UUID id, Series seriesDetails) {
-        if (get(id).isEmpty()) return null;
+        Optional<Series> found = primaryReads.get(() -> seriesRepository.findById(id));
+        if (found.isEmpty()) return null;
 
-        Series series = get(id).get();
+        Series series = found.get();
         series.setName(seriesDetails.getName());
         series.setMinValue(seriesDetails.getMinValue());
         series.setMaxValue(seriesDetails.getMaxValue());
@@ -35,22 +55,33 @@ public class SeriesService {
         series.setCreatedAt(seriesDetails.getCreatedAt());
         series.setUpdatedAt(OffsetDateTime.now());
 
-        return seriesRepository.save(series);
+        Series saved = seriesRepository.save(series);
+        changeTracker.seriesChanged();
+        seriesCache.invalidate(id);
+        return saved;
     }
 
     public Optional<Series> get(UUID id) {
-        return seriesRepository.findById(id);
+        return seriesCache.get(id);
     }
 
     public List<Series> getAll() {
-        return seriesRepository.findAll();
+        return seriesCache.getAll();
     }
 
+    @Transactional
     public void delete(UUID id) {
         seriesRepository.deleteById(id);
+        measurementJdbcRepository.deleteSeries(id);
+        changeTracker.seriesChanged();
+        seriesCache.invalidate(id);
     }
 
+    @Transactional
     public void delete(Series series) {
         seriesRepository.delete(series);
+        measurementJdbcRepository.deleteSeries(series.getId());
+        changeTracker.seriesChanged();
+        seriesCache.invalidate(series.getId());
     }
 }
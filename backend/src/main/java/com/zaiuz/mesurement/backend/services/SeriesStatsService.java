@@ -0,0 +1,149 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.RollupResolution;
+import com.zaiuz.mesurement.backend.domain.SeriesStatBucket;
+import com.zaiuz.mesurement.backend.domain.dto.SeriesStatsDto;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesStatsRepository;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.Moments;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps hourly moments and quantile sketches per series. A window is answered by merging
+ * the whole hours it covers and scanning raw rows only for the partial hours at its edges.
+ */
+@Service
+public class SeriesStatsService {
+    private static final RollupResolution BUCKET = RollupResolution.HOUR;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+    private static final int REBUILD_CHUNK = 500;
+    private static final Comparator<SeriesStatBucket> LOCK_ORDER = Comparator
+            .comparing(SeriesStatBucket::getSeriesId)
+            .thenComparingLong(SeriesStatBucket::getBucketMicros);
+
+    private final SeriesStatsRepository statsRepository;
+    private final MeasurementJdbcRepository measurementJdbcRepository;
+
+    public SeriesStatsService(SeriesStatsRepository statsRepository,
+                              MeasurementJdbcRepository measurementJdbcRepository) {
+        this.statsRepository = statsRepository;
+        this.measurementJdbcRepository = measurementJdbcRepository;
+    }
+
+    @EventListener
+    public void onAppended(MeasurementsAppendedEvent event) {
+        Map<BucketKey, SeriesStatBucket> partials = new HashMap<>();
+        for (Measurement m : event.getMeasurements()) {
+            UUID seriesId = m.getSeries().getId();
+            long bucket = BUCKET.bucketStart(EpochMicros.of(m.getTimestamp()));
+            partials.computeIfAbsent(new BucketKey(seriesId, bucket), k -> SeriesStatBucket.empty(seriesId, bucket))
+                    .add(m.getValue());
+        }
+
+        List<SeriesStatBucket> buckets = new ArrayList<>(partials.values());
+        buckets.sort(LOCK_ORDER);
+        statsRepository.mergeAll(buckets);
+    }
+
+    // Sketches cannot remove values, so changed hours are rebuilt from the rows and compacted points.
+    @EventListener
+    public void onRangeChanged(MeasurementRangeChangedEvent event) {
+        rebuild(event.getSeriesId(), event.getFrom(), event.getTo());
+    }
+
+    @Transactional
+    public void rebuild(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        long start = BUCKET.bucketStart(EpochMicros.of(from));
+        long end = BUCKET.bucketStart(EpochMicros.of(to)) + BUCKET.widthMicros();
+        statsRepository.deleteRange(seriesId, EpochMicros.toOffsetDateTime(start), EpochMicros.toOffsetDateTime(end));
+
+        List<SeriesStatBucket> pending = new ArrayList<>();
+        SeriesStatBucket[] current = {null};
+        measurementJdbcRepository.scanSeries(seriesId, EpochMicros.toOffsetDateTime(start),
+                EpochMicros.toOffsetDateTime(end - 1), (epochMicros, value) -> {
+                    long bucket = BUCKET.bucketStart(epochMicros);
+                    if (current[0] == null || current[0].getBucketMicros() != bucket) {
+                        if (pending.size() >= REBUILD_CHUNK) {
+                            statsRepository.replaceAll(pending);
+                            pending.clear();
+                        }
+                        current[0] = SeriesStatBucket.empty(seriesId, bucket);
+                        pending.add(current[0]);
+                    }
+                    current[0].add(value);
+                });
+        statsRepository.replaceAll(pending);
+    }
+
+    @Transactional(readOnly = true)
+    public SeriesStatsDto stats(UUID seriesId, OffsetDateTime from, OffsetDateTime to) {
+        if (from == null) from = EPOCH;
+        if (to == null) to = OffsetDateTime.now();
+        long fromMicros = EpochMicros.of(from);
+        long toMicros = EpochMicros.of(to);
+        long firstFull = BUCKET.bucketStart(fromMicros) == fromMicros
+                ? fromMicros
+                : BUCKET.bucketStart(fromMicros) + BUCKET.widthMicros();
+        long lastFull = BUCKET.bucketStart(toMicros);
+
+        SeriesStatBucket total = SeriesStatBucket.empty(seriesId, fromMicros);
+        if (firstFull >= lastFull) {
+            measurementJdbcRepository.scanSeries(seriesId, from, to, (epochMicros, value) -> total.add(value));
+        } else {
+            if (fromMicros < firstFull) {
+                measurementJdbcRepository.scanSeries(seriesId, from, EpochMicros.toOffsetDateTime(firstFull - 1),
+                        (epochMicros, value) -> total.add(value));
+            }
+            for (SeriesStatBucket bucket : statsRepository.findRange(seriesId,
+                    EpochMicros.toOffsetDateTime(firstFull), EpochMicros.toOffsetDateTime(lastFull))) {
+                total.merge(bucket);
+            }
+            measurementJdbcRepository.scanSeries(seriesId, EpochMicros.toOffsetDateTime(lastFull), to,
+                    (epochMicros, value) -> total.add(value));
+        }
+
+        Moments moments = total.getMoments();
+        SeriesStatsDto dto = SeriesStatsDto.builder()
+                .seriesId(seriesId)
+                .from(from)
+                .to(to)
+                .count(moments.count())
+                .build();
+        if (moments.count() > 0) {
+            dto.setMin(moments.min());
+            dto.setMax(moments.max());
+            dto.setMean(moments.mean());
+            dto.setStddev(Math.sqrt(moments.variance()));
+            dto.setP50(quantile(total, 0.50));
+            dto.setP95(quantile(total, 0.95));
+            dto.setP99(quantile(total, 0.99));
+        }
+        return dto;
+    }
+
+    // The sketch answers within its relative accuracy, which may land just outside the
+    // exact extremes kept by the moments.
+    private static double quantile(SeriesStatBucket bucket, double q) {
+        double value = bucket.getSketch().quantile(q);
+        return Math.min(Math.max(value, bucket.getMoments().min()), bucket.getMoments().max());
+    }
+
+    private record BucketKey(UUID seriesId, long bucketMicros) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Walks the points of compressed chunks in timestamp order, keeping only those within
+ * [from, to]. Chunks must arrive ordered by their first timestamp; each group of chunks
+ * whose time spans overlap is decoded and merged on its own, so memory is bounded by
+ * one group rather than the whole range.
+ */
+public class ChunkPointCursor {
+    private final Iterator<EncodedChunk> chunks;
+    private final long fromMicros;
+    private final long toMicros;
+    private final PriorityQueue<Run> runs = new PriorityQueue<>(
+            Comparator.comparingLong(Run::timestamp).thenComparing(run -> run.seriesId));
+    private EncodedChunk lookahead;
+
+    public ChunkPointCursor(Iterator<EncodedChunk> chunks, long fromMicros, long toMicros) {
+        this.chunks = chunks;
+        this.fromMicros = fromMicros;
+        this.toMicros = toMicros;
+        fill();
+    }
+
+    public static ChunkPointCursor empty() {
+        return new ChunkPointCursor(Collections.emptyIterator(), 0, -1);
+    }
+
+    public boolean hasPoint() {
+        return !runs.isEmpty();
+    }
+
+    public UUID seriesId() {
+        return runs.peek().seriesId;
+    }
+
+    public long timestamp() {
+        return runs.peek().timestamp();
+    }
+
+    public double value() {
+        Run run = runs.peek();
+        return run.points.value(run.index);
+    }
+
+    public void next() {
+        Run run = runs.poll();
+        if (++run.index < run.points.size()) {
+            runs.add(run);
+        } else if (runs.isEmpty()) {
+            fill();
+        }
+    }
+
+    /**
+     * Passes every remaining point with a timestamp before {@code limitMicros} to the consumer.
+     */
+    public void drainBefore(long limitMicros, PointConsumer consumer) {
+        while (hasPoint() && timestamp() < limitMicros) {
+            consumer.accept(timestamp(), value());
+            next();
+        }
+    }
+
+    private void fill() {
+        while (runs.isEmpty() && (lookahead != null || chunks.hasNext())) {
+            EncodedChunk chunk = lookahead != null ? lookahead : chunks.next();
+            lookahead = null;
+            long groupEnd = chunk.lastMicros();
+            addRun(chunk);
+            while (chunks.hasNext()) {
+                EncodedChunk candidate = chunks.next();
+                if (candidate.firstMicros() > groupEnd) {
+                    lookahead = candidate;
+                    break;
+                }
+                groupEnd = Math.max(groupEnd, candidate.lastMicros());
+                addRun(candidate);
+            }
+        }
+    }
+
+    private void addRun(EncodedChunk chunk) {
+        if (chunk.lastMicros() < fromMicros || chunk.firstMicros() > toMicros) return;
+        PointBuffer points = new PointBuffer(GorillaCodec.count(chunk.data()));
+        GorillaCodec.decode(chunk.data(), (epochMicros, value) -> {
+            if (epochMicros >= fromMicros && epochMicros <= toMicros) points.accept(epochMicros, value);
+        });
+        if (points.size() > 0) runs.add(new Run(chunk.seriesId(), points));
+    }
+
+    public record EncodedChunk(UUID seriesId, long firstMicros, long lastMicros, byte[] data) {
+    }
+
+    private static final class Run {
+        private final UUID seriesId;
+        private final PointBuffer points;
+        private int index;
+
+        Run(UUID seriesId, PointBuffer points) {
+            this.seriesId = seriesId;
+            this.points = points;
+        }
+
+        long timestamp() {
+            return points.timestamp(index);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Quantile sketch with a relative-error guarantee (DDSketch, Masson et al., VLDB 2019).
+ * Values are counted in logarithmically sized bins, so any quantile is returned within
+ * {@link #RELATIVE_ACCURACY} of the true value, and two sketches merge exactly by adding
+ * bin counts. Positive and negative values have their own bins; values too close to zero
+ * to index are counted separately.
+ *
+ * <p>Each store keeps at most {@link #MAX_BINS} bins. Past that the lowest-magnitude bins
+ * are collapsed, which only affects quantiles near zero. At 1% accuracy, 2048 bins cover
+ * about 17 orders of magnitude.
+ */
+public class DDSketch {
+    public static final double RELATIVE_ACCURACY = 0.01;
+    static final int MAX_BINS = 2048;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double MULTIPLIER = 1 / Math.log(GAMMA);
+    private static final double MIN_INDEXABLE = 1e-9;
+    private static final byte VERSION = 1;
+
+    private final Store positive = new Store();
+    private final Store negative = new Store();
+    private long zeroCount;
+
+    public void add(double value) {
+        if (value > MIN_INDEXABLE) {
+            positive.add(index(value), 1);
+        } else if (value < -MIN_INDEXABLE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+    }
+
+    public void merge(DDSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    public long count() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    /**
+     * @return the estimated value at quantile {@code q} in [0, 1], or NaN when empty
+     */
+    public double quantile(double q) {
+        long count = count();
+        if (count == 0) return Double.NaN;
+        long rank = (long) (q * (count - 1));
+
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) return -value(negative.offset + i);
+        }
+        seen += zeroCount;
+        if (seen > rank) return 0;
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) return value(positive.offset + i);
+        }
+        return Double.NaN;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(VERSION);
+        writeVarLong(out, zeroCount);
+        positive.encode(out);
+        negative.encode(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes output of {@link #encode()}; null or empty yields an empty sketch
+     */
+    public static DDSketch decode(byte[] bytes) {
+        DDSketch sketch = new DDSketch();
+        if (bytes == null || bytes.length == 0) return sketch;
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.get() != VERSION) throw new IllegalArgumentException("Unsupported sketch version");
+        sketch.zeroCount = readVarLong(in);
+        sketch.positive.decode(in);
+        sketch.negative.decode(in);
+        return sketch;
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) * MULTIPLIER);
+    }
+
+    // Midpoint of bin (gamma^(i-1), gamma^i] in the relative sense.
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    // Dense bins for one sign, counts[i] holds bin offset + i.
+    private static final class Store {
+        private long[] counts = new long[0];
+        private int offset;
+        private long total;
+
+        void add(int index, long count) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = index - 32;
+            }
+            int high = offset + counts.length;
+            if (index < offset) {
+                int newOffset = Math.max(index - counts.length / 2, high - MAX_BINS);
+                resize(newOffset, high - newOffset);
+            } else if (index >= high) {
+                int newHigh = index + 1 + counts.length / 2;
+                int newOffset = Math.max(offset, newHigh - MAX_BINS);
+                resize(newOffset, newHigh - newOffset);
+            }
+            counts[Math.max(index - offset, 0)] += count;
+            total += count;
+        }
+
+        void merge(Store other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) add(other.offset + i, other.counts[i]);
+            }
+        }
+
+        // Bins that fall below the new window are folded into its lowest bin.
+        private void resize(int newOffset, int newLength) {
+            long[] next = new long[newLength];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) next[Math.max(offset + i - newOffset, 0)] += counts[i];
+            }
+            counts = next;
+            offset = newOffset;
+        }
+
+        void encode(ByteArrayOutputStream out) {
+            int bins = 0;
+            for (long c : counts) {
+                if (c != 0) bins++;
+            }
+            writeVarLong(out, bins);
+            long previous = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                long index = offset + i;
+                long delta = index - previous;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                writeVarLong(out, counts[i]);
+                previous = index;
+            }
+        }
+
+        void decode(ByteBuffer in) {
+            long bins = readVarLong(in);
+            long index = 0;
+            for (long i = 0; i < bins; i++) {
+                long zigzag = readVarLong(in);
+                index += (zigzag >>> 1) ^ -(zigzag & 1);
+                add((int) index, readVarLong(in));
+            }
+        }
+    }
+}
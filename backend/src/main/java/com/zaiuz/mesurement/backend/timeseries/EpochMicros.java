@@ -0,0 +1,19 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+public final class EpochMicros {
+    private EpochMicros() {
+    }
+
+    public static long of(OffsetDateTime timestamp) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, timestamp.toInstant());
+    }
+
+    public static OffsetDateTime toOffsetDateTime(long epochMicros) {
+        return Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,51 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+/**
+ * How empty buckets of an aligned series are filled. Missing values are NaN. Gaps before
+ * the first and after the last known value stay empty for {@link #LINEAR}, and before
+ * the first one for {@link #PREVIOUS}.
+ */
+public enum GapFill {
+    NULL,
+    PREVIOUS,
+    LINEAR;
+
+    public static GapFill parse(String value) {
+        return switch (value) {
+            case "null" -> NULL;
+            case "previous" -> PREVIOUS;
+            case "linear" -> LINEAR;
+            default -> null;
+        };
+    }
+
+    public void apply(double[] values) {
+        switch (this) {
+            case NULL -> {
+            }
+            case PREVIOUS -> {
+                double last = Double.NaN;
+                for (int i = 0; i < values.length; i++) {
+                    if (Double.isNaN(values[i])) {
+                        values[i] = last;
+                    } else {
+                        last = values[i];
+                    }
+                }
+            }
+            case LINEAR -> {
+                int previous = -1;
+                for (int i = 0; i < values.length; i++) {
+                    if (Double.isNaN(values[i])) continue;
+                    if (previous >= 0 && i - previous > 1) {
+                        double slope = (values[i] - values[previous]) / (i - previous);
+                        for (int j = previous + 1; j < i; j++) {
+                            values[j] = values[previous] + slope * (j - previous);
+                        }
+                    }
+                    previous = i;
+                }
+            }
+        }
+    }
+}
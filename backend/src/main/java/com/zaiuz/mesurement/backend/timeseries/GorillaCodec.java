@@ -0,0 +1,221 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Compression for a run of points of one series, after Facebook's Gorilla (Pelkonen et al.,
+ * VLDB 2015). Timestamps are stored as delta-of-delta in epoch microseconds, so a series
+ * sampled at a steady rate costs one bit per timestamp. Each value is XORed with the
+ * previous one and only the meaningful bits are kept, so repeated or slowly changing
+ * values take a handful of bits.
+ *
+ * <p>Layout: a version byte, the point count as four bytes, then the bit stream. The first
+ * point is stored raw. Timestamps must be strictly increasing.
+ */
+public final class GorillaCodec {
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+
+    private GorillaCodec() {
+    }
+
+    public static byte[] encode(PointBuffer points) {
+        int count = points.size();
+        BitWriter out = new BitWriter(HEADER_BYTES + 16 + count * 2);
+        out.writeBits(VERSION, 8);
+        out.writeBits(count, 32);
+        if (count == 0) return out.toByteArray();
+
+        long timestamp = points.timestamp(0);
+        long valueBits = Double.doubleToRawLongBits(points.value(0));
+        out.writeBits(timestamp, 64);
+        out.writeBits(valueBits, 64);
+
+        long delta = 0;
+        int leading = Integer.MAX_VALUE;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            long next = points.timestamp(i);
+            if (next <= timestamp) {
+                throw new IllegalArgumentException("timestamps must be strictly increasing");
+            }
+            long nextDelta = next - timestamp;
+            writeDeltaOfDelta(out, nextDelta - delta);
+            delta = nextDelta;
+            timestamp = next;
+
+            long nextBits = Double.doubleToRawLongBits(points.value(i));
+            long xor = nextBits ^ valueBits;
+            valueBits = nextBits;
+            if (xor == 0) {
+                out.writeBit(false);
+                continue;
+            }
+            out.writeBit(true);
+            int xorLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int xorTrailing = Long.numberOfTrailingZeros(xor);
+            if (xorLeading >= leading && xorTrailing >= trailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                leading = xorLeading;
+                trailing = xorTrailing;
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                out.writeBits(significant & 63, 6);
+                out.writeBits(xor >>> trailing, significant);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static int count(byte[] data) {
+        checkVersion(data);
+        return ((data[1] & 0xff) << 24) | ((data[2] & 0xff) << 16) | ((data[3] & 0xff) << 8) | (data[4] & 0xff);
+    }
+
+    public static void decode(byte[] data, PointConsumer consumer) {
+        int count = count(data);
+        if (count == 0) return;
+
+        BitReader in = new BitReader(data, HEADER_BYTES);
+        long timestamp = in.readBits(64);
+        long valueBits = in.readBits(64);
+        consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readDeltaOfDelta(in);
+            timestamp += delta;
+
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6);
+                    if (significant == 0) significant = 64;
+                    trailing = 64 - leading - significant;
+                }
+                valueBits ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+        }
+    }
+
+    // '0' for no change, then growing prefixes for 12, 20 and 32 bit values, 64 bits as the fallback.
+    private static void writeDeltaOfDelta(BitWriter out, long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (fits(dod, 12)) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod, 12);
+        } else if (fits(dod, 20)) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod, 20);
+        } else if (fits(dod, 32)) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod, 32);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) return 0;
+        if (!in.readBit()) return signExtend(in.readBits(12), 12);
+        if (!in.readBit()) return signExtend(in.readBits(20), 20);
+        if (!in.readBit()) return signExtend(in.readBits(32), 32);
+        return in.readBits(64);
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return (value << shift) >> shift;
+    }
+
+    private static void checkVersion(byte[] data) {
+        if (data.length < HEADER_BYTES || data[0] != VERSION) {
+            throw new IllegalArgumentException("unsupported chunk encoding");
+        }
+    }
+
+    private static final class BitWriter {
+        private byte[] bytes;
+        private long position;
+
+        BitWriter(int initialBytes) {
+            this.bytes = new byte[Math.max(initialBytes, 16)];
+        }
+
+        void writeBit(boolean bit) {
+            ensure(1);
+            if (bit) {
+                bytes[(int) (position >>> 3)] |= (byte) (0x80 >>> (position & 7));
+            }
+            position++;
+        }
+
+        // Writes the low {@code count} bits of value, most significant first.
+        void writeBits(long value, int count) {
+            ensure(count);
+            while (count > 0) {
+                int index = (int) (position >>> 3);
+                int free = 8 - (int) (position & 7);
+                int take = Math.min(free, count);
+                int chunk = (int) ((value >>> (count - take)) & ((1 << take) - 1));
+                bytes[index] |= (byte) (chunk << (free - take));
+                position += take;
+                count -= take;
+            }
+        }
+
+        private void ensure(int bits) {
+            long needed = (position + bits + 7) >>> 3;
+            if (needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.max(needed, bytes.length * 2L));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (int) ((position + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] bytes;
+        private long position;
+
+        BitReader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.position = offset * 8L;
+        }
+
+        boolean readBit() {
+            boolean bit = (bytes[(int) (position >>> 3)] & (0x80 >>> (position & 7))) != 0;
+            position++;
+            return bit;
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            while (count > 0) {
+                int index = (int) (position >>> 3);
+                int available = 8 - (int) (position & 7);
+                int take = Math.min(available, count);
+                int chunk = ((bytes[index] & 0xff) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                position += take;
+                count -= take;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.UUID;
+
+@FunctionalInterface
+public interface IdentifiedPointConsumer {
+    void accept(UUID id, long epochMicros, double value);
+}
@@ -0,0 +1,61 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Keeps the first and
+ * last point and, for every bucket in between, the point forming the largest triangle
+ * with the previously selected point and the average of the next bucket.
+ */
+public final class Lttb {
+    private Lttb() {
+    }
+
+    public static int[] select(PointBuffer points, int threshold) {
+        int n = points.size();
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0;
+
+        long origin = points.timestamp(0);
+        double bucketWidth = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = (int) Math.floor((bucket + 1) * bucketWidth) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketWidth) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += points.timestamp(i) - origin;
+                avgY += points.value(i);
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int) Math.floor(bucket * bucketWidth) + 1;
+            int end = nextStart;
+            double ax = points.timestamp(a) - origin;
+            double ay = points.value(a);
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (points.value(i) - ay)
+                        - (ax - (points.timestamp(i) - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            selected[count++] = maxIndex;
+            a = maxIndex;
+        }
+
+        selected[count] = n - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,48 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.Arrays;
+
+public class PointBuffer implements PointConsumer {
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    public PointBuffer() {
+        this(1024);
+    }
+
+    public PointBuffer(int initialCapacity) {
+        this.timestamps = new long[Math.max(initialCapacity, 16)];
+        this.values = new double[timestamps.length];
+    }
+
+    @Override
+    public void accept(long epochMicros, double value) {
+        if (size == timestamps.length) {
+            int capacity = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        timestamps[size] = epochMicros;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double value(int index) {
+        return values[index];
+    }
+
+    // For buffers in timestamp order: the index of the point at that timestamp, or a negative
+    // number if there is none, as with Arrays.binarySearch.
+    public int search(long epochMicros) {
+        return Arrays.binarySearch(timestamps, 0, size, epochMicros);
+    }
+}
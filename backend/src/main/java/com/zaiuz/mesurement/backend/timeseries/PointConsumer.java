@@ -0,0 +1,6 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+@FunctionalInterface
+public interface PointConsumer {
+    void accept(long epochMicros, double value);
+}
@@ -0,0 +1,61 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.ArrayDeque;
+
+/**
+ * Sliding time window over points added in timestamp order. Count and mean come from a
+ * running sum; min and max from monotonic deques, so every point is added and evicted
+ * once and all aggregates are O(1) amortized.
+ */
+public class RollingWindow {
+    private final long lengthMicros;
+    private final ArrayDeque<long[]> points = new ArrayDeque<>();
+    private final ArrayDeque<long[]> minimums = new ArrayDeque<>();
+    private final ArrayDeque<long[]> maximums = new ArrayDeque<>();
+    private double sum;
+
+    public RollingWindow(long lengthMicros) {
+        this.lengthMicros = lengthMicros;
+    }
+
+    /**
+     * Adds a point and evicts those that fell out of the window ending at it.
+     */
+    public void add(long epochMicros, double value) {
+        long[] point = {epochMicros, Double.doubleToRawLongBits(value)};
+        points.addLast(point);
+        sum += value;
+        while (!minimums.isEmpty() && value(minimums.peekLast()) >= value) minimums.pollLast();
+        minimums.addLast(point);
+        while (!maximums.isEmpty() && value(maximums.peekLast()) <= value) maximums.pollLast();
+        maximums.addLast(point);
+
+        long cutoff = epochMicros - lengthMicros;
+        while (points.peekFirst()[0] <= cutoff) {
+            long[] evicted = points.pollFirst();
+            sum -= value(evicted);
+            if (minimums.peekFirst() == evicted) minimums.pollFirst();
+            if (maximums.peekFirst() == evicted) maximums.pollFirst();
+        }
+    }
+
+    public int count() {
+        return points.size();
+    }
+
+    public double mean() {
+        return points.isEmpty() ? Double.NaN : sum / points.size();
+    }
+
+    public double min() {
+        return minimums.isEmpty() ? Double.NaN : value(minimums.peekFirst());
+    }
+
+    public double max() {
+        return maximums.isEmpty() ? Double.NaN : value(maximums.peekFirst());
+    }
+
+    private static double value(long[] point) {
+        return Double.longBitsToDouble(point[1]);
+    }
+}
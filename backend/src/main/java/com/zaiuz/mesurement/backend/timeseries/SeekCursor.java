@@ -0,0 +1,44 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.nio.ByteBuffer;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+public final class SeekCursor {
+    private static final int LENGTH = Long.BYTES * 3;
+
+    private final OffsetDateTime timestamp;
+    private final UUID id;
+
+    public SeekCursor(OffsetDateTime timestamp, UUID id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public OffsetDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .putLong(EpochMicros.of(timestamp))
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static SeekCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        OffsetDateTime timestamp = EpochMicros.toOffsetDateTime(buffer.getLong());
+        return new SeekCursor(timestamp, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
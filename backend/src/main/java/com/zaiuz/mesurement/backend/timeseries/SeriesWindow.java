@@ -0,0 +1,189 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recent points of one series kept in timestamp order in parallel primitive arrays.
+ * The live region is [head, tail). Points expire from the head; late points are
+ * inserted in place. {@code coveredFrom} is the oldest timestamp for which the window
+ * is known to hold every point, and it only moves forward.
+ *
+ * <p>While the window is being loaded, live appends are buffered and applied once the
+ * load is done, replacing any loaded point with the same timestamp, so points that
+ * commit after the load's snapshot are not lost.
+ */
+public class SeriesWindow {
+    private final int maxPoints;
+    private long[] micros;
+    private double[] values;
+    private long[] idHigh;
+    private long[] idLow;
+    private int head;
+    private int tail;
+    private long coveredFrom = Long.MAX_VALUE;
+    private boolean loaded;
+    private List<Point> pending;
+
+    public SeriesWindow(int initialCapacity, int maxPoints) {
+        int capacity = Math.min(Math.max(initialCapacity, 16), maxPoints);
+        this.maxPoints = maxPoints;
+        this.micros = new long[capacity];
+        this.values = new double[capacity];
+        this.idHigh = new long[capacity];
+        this.idLow = new long[capacity];
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // Starts buffering appends; the loader then inserts the stored points and calls markLoaded.
+    // Returns false when the window is already loaded or loading, so only one caller loads it.
+    public synchronized boolean beginLoading() {
+        if (loaded || pending != null) return false;
+        pending = new ArrayList<>();
+        return true;
+    }
+
+    public synchronized void markLoaded(long coveredFromMicros) {
+        coveredFrom = coveredFrom == Long.MAX_VALUE ? coveredFromMicros : Math.max(coveredFrom, coveredFromMicros);
+        loaded = true;
+        if (pending == null) return;
+        for (Point point : pending) {
+            replace(point.id(), point.micros(), point.value());
+        }
+        pending = null;
+    }
+
+    // A live point: inserted once the window is loaded, buffered while it loads, ignored before.
+    public synchronized void append(UUID id, long epochMicros, double value) {
+        if (loaded) {
+            insert(id, epochMicros, value);
+        } else if (pending != null) {
+            pending.add(new Point(id, epochMicros, value));
+        }
+    }
+
+    public synchronized boolean covers(long fromMicros) {
+        return loaded && fromMicros >= coveredFrom;
+    }
+
+    public synchronized int size() {
+        return tail - head;
+    }
+
+    public synchronized void insert(UUID id, long epochMicros, double value) {
+        if (epochMicros < coveredFrom && loaded) return;
+
+        int pos = upperBound(epochMicros);
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        for (int i = pos - 1; i >= head && micros[i] == epochMicros; i--) {
+            if (idHigh[i] == high && idLow[i] == low) {
+                values[i] = value;
+                return;
+            }
+        }
+
+        if (tail == micros.length) {
+            makeRoom();
+            if (epochMicros < coveredFrom && loaded) return;
+            pos = upperBound(epochMicros);
+        }
+        if (pos < tail) {
+            int moved = tail - pos;
+            System.arraycopy(micros, pos, micros, pos + 1, moved);
+            System.arraycopy(values, pos, values, pos + 1, moved);
+            System.arraycopy(idHigh, pos, idHigh, pos + 1, moved);
+            System.arraycopy(idLow, pos, idLow, pos + 1, moved);
+        }
+        micros[pos] = epochMicros;
+        values[pos] = value;
+        idHigh[pos] = high;
+        idLow[pos] = low;
+        tail++;
+    }
+
+    // A series holds at most one point per timestamp, so a buffered append overwrites what the load found there.
+    private void replace(UUID id, long epochMicros, double value) {
+        int pos = upperBound(epochMicros) - 1;
+        if (pos >= head && micros[pos] == epochMicros) {
+            values[pos] = value;
+            idHigh[pos] = id.getMostSignificantBits();
+            idLow[pos] = id.getLeastSignificantBits();
+            return;
+        }
+        insert(id, epochMicros, value);
+    }
+
+    public synchronized void evictBefore(long cutoffMicros) {
+        while (head < tail && micros[head] < cutoffMicros) {
+            head++;
+        }
+        if (loaded) {
+            coveredFrom = Math.max(coveredFrom, cutoffMicros);
+        }
+    }
+
+    public synchronized int read(long fromMicros, long toMicros, IdentifiedPointConsumer consumer) {
+        int start = lowerBound(fromMicros);
+        int end = upperBound(toMicros);
+        for (int i = start; i < end; i++) {
+            consumer.accept(new UUID(idHigh[i], idLow[i]), micros[i], values[i]);
+        }
+        return Math.max(end - start, 0);
+    }
+
+    // Called with the arrays full: reclaim the expired prefix, grow up to maxPoints, and
+    // only then give up the oldest eighth of the window.
+    private void makeRoom() {
+        if (head == 0 && micros.length < maxPoints) {
+            int capacity = (int) Math.min((long) micros.length * 2, maxPoints);
+            micros = Arrays.copyOf(micros, capacity);
+            values = Arrays.copyOf(values, capacity);
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            return;
+        }
+        if (head == 0) {
+            int dropped = Math.max(micros.length / 8, 1);
+            coveredFrom = micros[dropped - 1] + 1;
+            head = dropped;
+        }
+        int live = tail - head;
+        System.arraycopy(micros, head, micros, 0, live);
+        System.arraycopy(values, head, values, 0, live);
+        System.arraycopy(idHigh, head, idHigh, 0, live);
+        System.arraycopy(idLow, head, idLow, 0, live);
+        head = 0;
+        tail = live;
+    }
+
+    private int lowerBound(long epochMicros) {
+        int lo = head;
+        int hi = tail;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (micros[mid] < epochMicros) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int upperBound(long epochMicros) {
+        int lo = head;
+        int hi = tail;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (micros[mid] <= epochMicros) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private record Point(UUID id, long micros, double value) {
+    }
+}
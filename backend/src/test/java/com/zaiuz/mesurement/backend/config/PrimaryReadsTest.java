@@ -0,0 +1,128 @@
+package com.zaiuz.mesurement.backend.config;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesChangeRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesRepository;
+import com.zaiuz.mesurement.backend.services.SeriesCache;
+import com.zaiuz.mesurement.backend.services.SeriesChangeTracker;
+import com.zaiuz.mesurement.backend.services.SeriesService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrimaryReadsTest {
+	private static final UUID ID = UUID.randomUUID();
+
+	private ReplicaRoutingDataSource routing;
+	private TransactionTemplate readOnly;
+	private SeriesRepository repository;
+	private PrimaryReads primaryReads;
+	private final AtomicReference<Object> routedTo = new AtomicReference<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		routing = new ReplicaRoutingDataSource(pool(), pool(), Duration.ofSeconds(10), Duration.ofMinutes(1),
+				new SimpleMeterRegistry());
+		DataSourceTransactionManager transactionManager =
+				new DataSourceTransactionManager(new ReadReplicaConfig.RoutingDataSource(routing));
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		awaitReplica();
+
+		repository = mock(SeriesRepository.class);
+		Series series = Series.builder().id(ID).build();
+		when(repository.findById(ID)).thenAnswer(invocation -> route(Optional.of(series)));
+		when(repository.findAll()).thenAnswer(invocation -> route(List.of(series)));
+		when(repository.findAllById(any())).thenAnswer(invocation -> route(List.of(series)));
+		when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		primaryReads = new PrimaryReads(transactionManager, true);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		routing.close();
+	}
+
+	@Test
+	void plainReadsInAReadOnlyTransactionUseTheReplica() {
+		readOnly.executeWithoutResult(status -> repository.findById(ID));
+		assertEquals("replica", routedTo.get());
+	}
+
+	@Test
+	void seriesCacheLoadsUseThePrimary() {
+		SeriesCache cache = new SeriesCache(repository, mock(SeriesChangeRepository.class), primaryReads,
+				new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+		assertRoutedToPrimary(() -> cache.get(ID));
+		cache.invalidateAll();
+		assertRoutedToPrimary(cache::getAll);
+		cache.invalidateAll();
+		assertRoutedToPrimary(() -> cache.getAll(List.of(ID)));
+	}
+
+	@Test
+	void seriesUpdateReadsThePrimary() {
+		SeriesService service = new SeriesService(repository, mock(SeriesCache.class),
+				mock(MeasurementJdbcRepository.class), primaryReads, mock(SeriesChangeTracker.class));
+
+		assertRoutedToPrimary(() -> service.update(ID, Series.builder().name("renamed").build()));
+	}
+
+	private void assertRoutedToPrimary(Supplier<?> read) {
+		routedTo.set(null);
+		assertNotNull(readOnly.execute(status -> read.get()));
+		assertEquals("primary", routedTo.get());
+	}
+
+	private <T> T route(T result) {
+		routedTo.set(routing.determineCurrentLookupKey());
+		return result;
+	}
+
+	private void awaitReplica() throws InterruptedException {
+		for (int i = 0; i < 500; i++) {
+			if ("replica".equals(readOnly.execute(status -> routing.determineCurrentLookupKey()))) return;
+			Thread.sleep(10);
+		}
+		throw new AssertionError("replica never became usable");
+	}
+
+	// A pool whose connections answer the lag check with zero.
+	private static DataSource pool() throws Exception {
+		ResultSet lag = mock(ResultSet.class);
+		when(lag.next()).thenReturn(true);
+		when(lag.getDouble(anyInt())).thenReturn(0.0);
+		Statement statement = mock(Statement.class);
+		when(statement.executeQuery(anyString())).thenReturn(lag);
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement()).thenReturn(statement);
+		when(connection.getAutoCommit()).thenReturn(true);
+		DataSource pool = mock(DataSource.class);
+		when(pool.getConnection()).thenReturn(connection);
+		return pool;
+	}
+}
@@ -0,0 +1,137 @@
+package com.zaiuz.mesurement.backend.formats;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarMeasurementWriterTest {
+	private static final Series EMPTY = Series.builder().id(UUID.randomUUID()).name("empty").color("#ff0000")
+			.minValue(-1).maxValue(1).build();
+	private static final Series SINGLE = Series.builder().id(UUID.randomUUID()).name("jedna wartość").color(null)
+			.minValue(0).maxValue(100).build();
+	private static final Series LONG = Series.builder().id(UUID.randomUUID()).name("long").color("#00ff00")
+			.minValue(-1e6).maxValue(1e6).build();
+
+	@Test
+	void roundTripsHeaderAndPoints() throws IOException {
+		List<Series> series = List.of(EMPTY, SINGLE, LONG);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ColumnarMeasurementWriter writer = new ColumnarMeasurementWriter(bytes, series);
+		writer.beginSeries(0);
+		writer.beginSeries(1);
+		writer.accept(-1_000_000L, 42.5);
+		writer.beginSeries(2);
+		int count = 10_000;
+		long[] timestamps = new long[count];
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			timestamps[i] = 1_735_689_600_000_000L + i * 1_000_000L + (i % 3) * 7;
+			values[i] = Math.sin(i) * 1000;
+			writer.accept(timestamps[i], values[i]);
+		}
+		writer.finish();
+
+		Decoded decoded = decode(bytes.toByteArray());
+		assertEquals(3, decoded.series.size());
+		for (int i = 0; i < series.size(); i++) {
+			Series expected = series.get(i);
+			DecodedSeries actual = decoded.series.get(i);
+			assertEquals(expected.getId(), actual.id);
+			assertEquals(expected.getName(), actual.name);
+			assertEquals(expected.getColor() == null ? "" : expected.getColor(), actual.color);
+			assertEquals(expected.getMinValue(), actual.minValue);
+			assertEquals(expected.getMaxValue(), actual.maxValue);
+		}
+		assertEquals(0, decoded.series.get(0).timestamps.size());
+		assertEquals(List.of(-1_000_000L), decoded.series.get(1).timestamps);
+		assertEquals(List.of(42.5), decoded.series.get(1).values);
+		assertArrayEquals(timestamps, decoded.series.get(2).timestamps.stream().mapToLong(Long::longValue).toArray());
+		assertArrayEquals(values, decoded.series.get(2).values.stream().mapToDouble(Double::doubleValue).toArray());
+		// One for the single point, three for the 10 000 points: a block holds at most 4096.
+		assertEquals(4, decoded.blocks);
+	}
+
+	@Test
+	void streamWithoutSeriesIsHeaderAndTerminator() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ColumnarMeasurementWriter(bytes, List.of()).finish();
+		assertArrayEquals(new byte[]{'Z', 'M', 'S', '1', 0, 0}, bytes.toByteArray());
+	}
+
+	private static Decoded decode(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		byte[] magic = new byte[4];
+		in.readFully(magic);
+		assertEquals("ZMS1", new String(magic, StandardCharsets.US_ASCII));
+
+		Decoded decoded = new Decoded();
+		long seriesCount = readVarint(in);
+		for (int i = 0; i < seriesCount; i++) {
+			DecodedSeries s = new DecodedSeries();
+			s.id = new UUID(in.readLong(), in.readLong());
+			s.name = readString(in);
+			s.color = readString(in);
+			s.minValue = in.readDouble();
+			s.maxValue = in.readDouble();
+			decoded.series.add(s);
+		}
+		long tag;
+		while ((tag = readVarint(in)) != 0) {
+			DecodedSeries s = decoded.series.get((int) tag - 1);
+			int n = (int) readVarint(in);
+			long previous = 0;
+			for (int i = 0; i < n; i++) {
+				long zigzag = readVarint(in);
+				previous += (zigzag >>> 1) ^ -(zigzag & 1);
+				s.timestamps.add(previous);
+			}
+			for (int i = 0; i < n; i++) {
+				s.values.add(in.readDouble());
+			}
+			decoded.blocks++;
+		}
+		assertEquals(-1, in.read(), "bytes after the terminator");
+		return decoded;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[(int) readVarint(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long readVarint(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+	}
+
+	private static class Decoded {
+		final List<DecodedSeries> series = new ArrayList<>();
+		int blocks;
+	}
+
+	private static class DecodedSeries {
+		UUID id;
+		String name;
+		String color;
+		double minValue;
+		double maxValue;
+		final List<Long> timestamps = new ArrayList<>();
+		final List<Double> values = new ArrayList<>();
+	}
+}
@@ -0,0 +1,136 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The statement is played by execute: stored keys conflict, and like PostgreSQL it returns
+// a conflicting row only when it updates it, with xmax != 0.
+class MeasurementJdbcRepositoryUpsertTest {
+	private static final Series SERIES = Series.builder().id(UUID.randomUUID()).build();
+	private static final OffsetDateTime T0 = OffsetDateTime.parse("2025-01-01T00:00:00.000001Z");
+
+	private final Set<String> stored = new HashSet<>();
+	private final List<String> statements = new ArrayList<>();
+	private MeasurementJdbcRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		JdbcTemplate template = mock(JdbcTemplate.class);
+		doAnswer(this::execute).when(template)
+				.query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+		MeasurementShards shards = mock(MeasurementShards.class);
+		when(shards.primary()).thenReturn(template);
+		repository = new MeasurementJdbcRepository(shards, mock(MeasurementChunkRepository.class), 2);
+	}
+
+	@Test
+	void freshPointsAreInsertedInChunksOfTheBatchSize() {
+		List<Measurement> points = List.of(point(0, 1), point(1, 2), point(2, 3));
+
+		MeasurementJdbcRepository.UpsertResult result = repository.upsertAll(points, false);
+
+		assertEquals(points, result.inserted());
+		assertTrue(result.updated().isEmpty());
+		assertTrue(result.skipped().isEmpty());
+		assertEquals(2, statements.size());
+	}
+
+	@Test
+	void ignoreSkipsPointsThatHitExistingRows() {
+		repository.upsertAll(List.of(point(1, 1)), false);
+		Measurement existing = point(1, 5);
+		Measurement fresh = point(2, 6);
+
+		MeasurementJdbcRepository.UpsertResult result = repository.upsertAll(List.of(existing, fresh), false);
+
+		assertEquals(List.of(fresh), result.inserted());
+		assertTrue(result.updated().isEmpty());
+		assertEquals(List.of(existing), result.skipped());
+		assertTrue(statements.getLast().contains("DO NOTHING"));
+	}
+
+	@Test
+	void overwriteUpdatesExistingRows() {
+		repository.upsertAll(List.of(point(1, 1)), false);
+		Measurement existing = point(1, 5);
+		Measurement fresh = point(2, 6);
+
+		MeasurementJdbcRepository.UpsertResult result = repository.upsertAll(List.of(existing, fresh), true);
+
+		assertEquals(List.of(fresh), result.inserted());
+		assertEquals(List.of(existing), result.updated());
+		assertTrue(result.skipped().isEmpty());
+		assertTrue(statements.getLast().contains("DO UPDATE SET value = EXCLUDED.value"));
+	}
+
+	@Test
+	void conflictsAreMatchedAcrossChunks() {
+		repository.upsertAll(List.of(point(0, 1), point(3, 1)), false);
+		List<Measurement> points = List.of(point(0, 2), point(1, 2), point(2, 2), point(3, 2));
+
+		MeasurementJdbcRepository.UpsertResult result = repository.upsertAll(points, false);
+
+		assertEquals(List.of(points.get(1), points.get(2)), result.inserted());
+		assertEquals(List.of(points.get(0), points.get(3)), result.skipped());
+	}
+
+	private Object execute(InvocationOnMock invocation) throws Exception {
+		List<Object[]> arrays = new ArrayList<>();
+		Connection connection = mock(Connection.class);
+		when(connection.createArrayOf(anyString(), any())).thenAnswer(call -> {
+			arrays.add(call.getArgument(1));
+			return mock(Array.class);
+		});
+		when(connection.prepareStatement(anyString())).thenAnswer(call -> {
+			statements.add(call.getArgument(0));
+			return mock(PreparedStatement.class);
+		});
+		invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+
+		boolean overwrite = statements.getLast().contains("DO UPDATE");
+		Object[] seriesIds = arrays.get(1);
+		Object[] micros = arrays.get(3);
+		RowCallbackHandler handler = invocation.getArgument(1);
+		for (int i = 0; i < seriesIds.length; i++) {
+			boolean inserted = stored.add(seriesIds[i] + "@" + micros[i]);
+			if (!inserted && !overwrite) continue;
+			ResultSet rs = mock(ResultSet.class);
+			when(rs.getObject(1, UUID.class)).thenReturn((UUID) seriesIds[i]);
+			when(rs.getLong(2)).thenReturn((Long) micros[i]);
+			when(rs.getBoolean(3)).thenReturn(inserted);
+			handler.processRow(rs);
+		}
+		return null;
+	}
+
+	private static Measurement point(int second, double value) {
+		OffsetDateTime timestamp = T0.plusSeconds(second);
+		return Measurement.builder().id(UUID.randomUUID()).series(SERIES).value(value).timestamp(timestamp)
+				.createdBy("test").createdAt(timestamp).updatedAt(timestamp).build();
+	}
+}
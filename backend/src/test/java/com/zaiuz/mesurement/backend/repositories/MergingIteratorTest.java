@@ -0,0 +1,53 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MergingIteratorTest {
+
+	@Test
+	void mergesSortedSources() {
+		List<Integer> merged = drain(new MergingIterator<>(List.of(
+				List.of(1, 4, 7).iterator(), List.<Integer>of().iterator(), List.of(2, 3, 8, 9).iterator(),
+				List.of(5).iterator()), Comparator.naturalOrder()));
+		assertEquals(List.of(1, 2, 3, 4, 5, 7, 8, 9), merged);
+	}
+
+	@Test
+	void tiesGoToTheEarlierSource() {
+		record Row(int key, String source) {
+		}
+		List<Row> merged = drain(new MergingIterator<>(List.of(
+				List.of(new Row(1, "b"), new Row(2, "b")).iterator(),
+				List.of(new Row(1, "c"), new Row(2, "c")).iterator()), Comparator.comparingInt(Row::key)));
+		assertEquals(List.of("b", "c", "b", "c"), merged.stream().map(Row::source).toList());
+	}
+
+	@Test
+	void emptyWithoutSources() {
+		assertFalse(new MergingIterator<>(List.<List<Integer>>of().stream().map(List::iterator).toList(),
+				Comparator.<Integer>naturalOrder()).hasNext());
+	}
+
+	// PostgreSQL orders uuids by their unsigned bytes, UUID.compareTo by signed longs.
+	@Test
+	void uuidOrderMatchesPostgres() {
+		UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+		UUID high = UUID.fromString("ffffffff-0000-0000-0000-000000000000");
+		assertEquals(-1, Integer.signum(MeasurementShards.UUID_ORDER.compare(low, high)));
+		assertEquals(1, Integer.signum(low.compareTo(high)));
+	}
+
+	private static <T> List<T> drain(MergingIterator<T> iterator) {
+		List<T> values = new ArrayList<>();
+		iterator.forEachRemaining(values::add);
+		return values;
+	}
+}
@@ -0,0 +1,31 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PartitionRepositoryTest {
+	@Test
+	void createMonthMovesRowsOutOfTheDefaultPartitionBeforeAttaching() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+		new PartitionRepository(jdbcTemplate).createMonth(YearMonth.of(2025, 2));
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(jdbcTemplate).execute(sql.capture());
+		String block = sql.getValue();
+		int create = block.indexOf("CREATE TABLE measurements_y2025m02 (LIKE measurements");
+		int move = block.indexOf("DELETE FROM measurements_default WHERE timestamp >= '2025-02-01T00:00Z' " +
+				"AND timestamp < '2025-03-01T00:00Z'");
+		int attach = block.indexOf("ATTACH PARTITION measurements_y2025m02 FOR VALUES FROM ('2025-02-01T00:00Z') " +
+				"TO ('2025-03-01T00:00Z')");
+		assertTrue(block.startsWith("DO $$"));
+		assertTrue(create >= 0 && create < move && move < attach, block);
+	}
+}
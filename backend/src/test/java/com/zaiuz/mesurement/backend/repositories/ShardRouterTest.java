@@ -0,0 +1,57 @@
+package com.zaiuz.mesurement.backend.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRouterTest {
+	private static final int KEYS = 100_000;
+
+	@Test
+	void singleShardOwnsEverything() {
+		ShardRouter router = new ShardRouter(1, 128);
+		assertEquals(0, router.shardFor(UUID.randomUUID()));
+	}
+
+	@Test
+	void spreadsSeriesEvenly() {
+		ShardRouter router = new ShardRouter(4, 128);
+		int[] counts = new int[4];
+		Random random = new Random(7);
+		for (int i = 0; i < KEYS; i++) {
+			counts[router.shardFor(new UUID(random.nextLong(), random.nextLong()))]++;
+		}
+		for (int count : counts) {
+			assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.15, "shard holds " + count);
+		}
+	}
+
+	@Test
+	void addingAShardOnlyMovesSeriesOntoIt() {
+		ShardRouter three = new ShardRouter(3, 128);
+		ShardRouter four = new ShardRouter(4, 128);
+		int moved = 0;
+		Random random = new Random(11);
+		for (int i = 0; i < KEYS; i++) {
+			UUID seriesId = new UUID(random.nextLong(), random.nextLong());
+			int before = three.shardFor(seriesId);
+			int after = four.shardFor(seriesId);
+			if (before != after) {
+				assertEquals(3, after);
+				moved++;
+			}
+		}
+		assertTrue(Math.abs(moved - KEYS / 4) < KEYS / 4 * 0.15, "moved " + moved);
+	}
+
+	@Test
+	void rejectsEmptyRing() {
+		assertThrows(IllegalArgumentException.class, () -> new ShardRouter(0, 128));
+		assertThrows(IllegalArgumentException.class, () -> new ShardRouter(2, 0));
+	}
+}
@@ -0,0 +1,197 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.dto.IngestStatusDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestQueueTest {
+	private static final int CAPACITY = 8;
+	private static final int MAX_BATCH = 4;
+
+	private MeasurementService service;
+	private final List<Measurement> written = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch release = new CountDownLatch(1);
+	private IngestQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		service = mock(MeasurementService.class);
+		when(service.writePrepared(anyList(), eq(ConflictPolicy.IGNORE))).thenAnswer(invocation -> {
+			written.addAll(invocation.getArgument(0));
+			return List.of();
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		if (queue != null && queue.isRunning()) queue.stop();
+	}
+
+	@Test
+	void everyOfferedPointIsWrittenInOrder() {
+		// One writer, as batches on different writers may finish in any order.
+		start(1);
+		List<Measurement> first = points(3);
+		List<Measurement> second = points(5);
+
+		assertEquals(3, queue.offer(first));
+		assertEquals(8, queue.offer(second));
+		awaitCommitted(8);
+
+		List<Measurement> expected = new ArrayList<>(first);
+		expected.addAll(second);
+		assertEquals(expected, written);
+		assertEquals(new IngestStatusDto(8, 8, 0, CAPACITY), queue.status());
+	}
+
+	@Test
+	void watermarkWaitsForEarlierBatches() throws Exception {
+		CountDownLatch firstBatchStarted = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		when(service.writePrepared(anyList(), eq(ConflictPolicy.IGNORE))).thenAnswer(invocation -> {
+			List<Measurement> batch = invocation.getArgument(0);
+			if (calls.getAndIncrement() == 0) {
+				firstBatchStarted.countDown();
+				release.await();
+			}
+			written.addAll(batch);
+			return List.of();
+		});
+		start(2);
+
+		queue.offer(points(MAX_BATCH));
+		assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+		queue.offer(points(MAX_BATCH));
+		await(() -> written.size() == MAX_BATCH);
+		assertEquals(0, queue.status().getCommittedSequence());
+
+		release.countDown();
+		awaitCommitted(2 * MAX_BATCH);
+	}
+
+	@Test
+	void fullQueueRejectsTheWholeBatchUntilItDrains() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		when(service.writePrepared(anyList(), eq(ConflictPolicy.IGNORE))).thenAnswer(invocation -> {
+			writing.countDown();
+			release.await();
+			written.addAll(invocation.getArgument(0));
+			return List.of();
+		});
+		start(1);
+
+		queue.offer(points(MAX_BATCH));
+		assertTrue(writing.await(5, TimeUnit.SECONDS));
+		// The only writer is busy: one batch waits in the dispatcher, the rest fills the queue.
+		queue.offer(points(MAX_BATCH));
+		await(() -> queue.status().getDepth() == 0);
+		assertEquals(16, queue.offer(points(CAPACITY)));
+		assertEquals(-1, queue.offer(points(1)));
+		assertEquals(16, queue.status().getLastSequence());
+
+		release.countDown();
+		awaitCommitted(16);
+		assertEquals(17, queue.offer(points(1)));
+		awaitCommitted(17);
+	}
+
+	@Test
+	void batchLargerThanTheQueueIsRefused() {
+		start(1);
+		assertThrows(IllegalArgumentException.class, () -> queue.offer(points(CAPACITY + 1)));
+		assertEquals(CAPACITY, queue.offer(points(CAPACITY)));
+	}
+
+	@Test
+	void transientFailuresAreRetried() {
+		when(service.writePrepared(anyList(), eq(ConflictPolicy.IGNORE)))
+				.thenThrow(new TransientDataAccessResourceException("connection reset"))
+				.thenAnswer(invocation -> {
+					written.addAll(invocation.getArgument(0));
+					return List.of();
+				});
+		start(1);
+
+		queue.offer(points(2));
+		awaitCommitted(2);
+		assertEquals(2, written.size());
+	}
+
+	@Test
+	void watermarkMovesPastBatchesThatCannotBeWritten() {
+		when(service.writePrepared(anyList(), eq(ConflictPolicy.IGNORE)))
+				.thenThrow(new DataIntegrityViolationException("bad row"))
+				.thenAnswer(invocation -> {
+					written.addAll(invocation.getArgument(0));
+					return List.of();
+				});
+		start(1);
+
+		queue.offer(points(MAX_BATCH));
+		awaitCommitted(MAX_BATCH);
+		queue.offer(points(1));
+		awaitCommitted(MAX_BATCH + 1);
+		assertEquals(1, written.size());
+	}
+
+	@Test
+	void offersAreRejectedBeforeStart() {
+		queue = new IngestQueue(service, new SimpleMeterRegistry(), CAPACITY, MAX_BATCH, Duration.ofMillis(20), 1, 3);
+		assertEquals(-1, queue.offer(points(1)));
+	}
+
+	private void start(int writers) {
+		queue = new IngestQueue(service, new SimpleMeterRegistry(), CAPACITY, MAX_BATCH, Duration.ofMillis(20),
+				writers, 3);
+		queue.start();
+	}
+
+	private void awaitCommitted(long sequence) {
+		await(() -> queue.status().getCommittedSequence() == sequence);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) throw new AssertionError("condition not met in time");
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	private static List<Measurement> points(int count) {
+		List<Measurement> points = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			points.add(Measurement.builder().id(UUID.randomUUID()).value(i).build());
+		}
+		return points;
+	}
+}
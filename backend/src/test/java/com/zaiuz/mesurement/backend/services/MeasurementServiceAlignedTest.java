@@ -0,0 +1,76 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.domain.dto.AlignedMatrixDto;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import com.zaiuz.mesurement.backend.timeseries.GapFill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceAlignedTest {
+	private static final UUID SERIES = UUID.randomUUID();
+	private static final OffsetDateTime FROM = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		SeriesCache seriesCache = mock(SeriesCache.class);
+		when(seriesCache.getAll(anyCollection())).thenReturn(List.of(Series.builder().id(SERIES).build()));
+		MeasurementJdbcRepository jdbc = mock(MeasurementJdbcRepository.class);
+		when(jdbc.alignedAverages(anyCollection(), any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+			double[] column = new double[invocation.<Integer>getArgument(4)];
+			Arrays.fill(column, 1.0);
+			return Map.of(SERIES, column);
+		});
+		service = new MeasurementService(mock(MeasurementRepository.class), jdbc,
+				mock(MeasurementChunkRepository.class), seriesCache, mock(RollupService.class),
+				mock(HotWindowStore.class), new MeasurementMetrics(new SimpleMeterRegistry(), false),
+				mock(EntityManager.class), mock(ApplicationEventPublisher.class),
+				mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void defaultStepCoversSpanThatIsNotAMultipleOfMaxPoints() {
+		AlignedMatrixDto matrix = service.aligned(List.of(SERIES), FROM, FROM.plusDays(1), null, 7, GapFill.NULL);
+		assertEquals(7, matrix.getTimestamps().size());
+		assertEquals(7, matrix.getColumns().getFirst().getValues().size());
+	}
+
+	@Test
+	void defaultStepForArbitraryRangeStaysWithinMaxPoints() {
+		OffsetDateTime to = FROM.plusSeconds(86_399).plusNanos(123_456_789);
+		AlignedMatrixDto matrix = service.aligned(List.of(SERIES), FROM, to, null, 1000, GapFill.NULL);
+		assertTrue(matrix.getTimestamps().size() <= 1000);
+		Duration step = Duration.parse(matrix.getStep());
+		assertTrue(!FROM.plus(step.multipliedBy(matrix.getTimestamps().size())).isBefore(to));
+	}
+
+	@Test
+	void rejectsStepBelowOneMicrosecond() {
+		assertThrows(IllegalArgumentException.class, () -> service.aligned(List.of(SERIES), FROM,
+				FROM.plusNanos(10_000), Duration.ofNanos(500), 1000, GapFill.NULL));
+	}
+}
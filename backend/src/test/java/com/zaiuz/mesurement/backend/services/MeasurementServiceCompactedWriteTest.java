@@ -0,0 +1,114 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceCompactedWriteTest {
+	private static final Series SERIES = Series.builder().id(UUID.randomUUID()).build();
+	private static final OffsetDateTime CHUNK = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+	private static final OffsetDateTime COMPACTED = CHUNK.plusHours(1);
+	private static final OffsetDateTime NEW = CHUNK.plusHours(2);
+
+	private MeasurementJdbcRepository jdbc;
+	private MeasurementChunkRepository chunks;
+	private ApplicationEventPublisher events;
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		jdbc = mock(MeasurementJdbcRepository.class);
+		when(jdbc.upsertAll(anyList(), anyBoolean())).thenAnswer(invocation ->
+				new MeasurementJdbcRepository.UpsertResult(new ArrayList<>(invocation.<List<Measurement>>getArgument(0)),
+						new ArrayList<>(), new ArrayList<>()));
+		chunks = mock(MeasurementChunkRepository.class);
+		when(chunks.coldBefore()).thenReturn(CHUNK.plusDays(1));
+		when(chunks.windowStart(any())).thenReturn(CHUNK);
+		when(chunks.lockChunk(SERIES.getId(), CHUNK)).thenAnswer(invocation -> {
+			PointBuffer stored = new PointBuffer();
+			stored.accept(EpochMicros.of(CHUNK), 1.0);
+			stored.accept(EpochMicros.of(COMPACTED), 2.0);
+			return stored;
+		});
+		events = mock(ApplicationEventPublisher.class);
+		service = new MeasurementService(mock(MeasurementRepository.class), jdbc, chunks, mock(SeriesCache.class),
+				mock(RollupService.class), mock(HotWindowStore.class),
+				new MeasurementMetrics(new SimpleMeterRegistry(), false), mock(EntityManager.class), events,
+				mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void ignoreSkipsPointsAlreadyInAChunk() {
+		Measurement duplicate = point(COMPACTED, 5.0);
+		Measurement fresh = point(NEW, 6.0);
+
+		List<Measurement> skipped = service.writePrepared(List.of(duplicate, fresh), ConflictPolicy.IGNORE);
+
+		assertEquals(List.of(duplicate), skipped);
+		verify(jdbc).upsertAll(List.of(fresh), false);
+		verify(chunks, never()).save(any(), any(), any());
+	}
+
+	@Test
+	void errorRejectsPointsAlreadyInAChunk() {
+		assertThrows(DuplicateKeyException.class,
+				() -> service.writePrepared(List.of(point(COMPACTED, 5.0)), ConflictPolicy.ERROR));
+		verify(jdbc, never()).insertAll(anyList());
+	}
+
+	@Test
+	void updateMovesThePointOutOfItsChunkAndRebuildsItsRange() {
+		Measurement replacement = point(COMPACTED, 5.0);
+
+		List<Measurement> skipped = service.writePrepared(List.of(replacement), ConflictPolicy.UPDATE);
+
+		assertEquals(List.of(), skipped);
+		ArgumentCaptor<PointBuffer> kept = ArgumentCaptor.forClass(PointBuffer.class);
+		verify(chunks).save(eq(SERIES.getId()), eq(CHUNK), kept.capture());
+		assertEquals(1, kept.getValue().size());
+		assertEquals(EpochMicros.of(CHUNK), kept.getValue().timestamp(0));
+		verify(jdbc).upsertAll(List.of(replacement), true);
+		ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+		verify(events, times(2)).publishEvent(published.capture());
+		MeasurementRangeChangedEvent changed = (MeasurementRangeChangedEvent) published.getAllValues().get(1);
+		assertSame(SERIES.getId(), changed.getSeriesId());
+		assertEquals(COMPACTED, changed.getFrom());
+	}
+
+	private static Measurement point(OffsetDateTime timestamp, double value) {
+		return Measurement.builder().id(UUID.randomUUID()).series(SERIES).value(value).timestamp(timestamp)
+				.createdBy("test").createdAt(timestamp).updatedAt(timestamp).build();
+	}
+}
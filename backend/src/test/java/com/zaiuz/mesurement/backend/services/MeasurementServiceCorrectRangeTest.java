@@ -0,0 +1,97 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceCorrectRangeTest {
+	private static final OffsetDateTime FROM = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+	private static final OffsetDateTime TO = FROM.plusDays(1);
+
+	private final Series series = Series.builder().id(UUID.randomUUID()).minValue(-100).maxValue(100).build();
+	private MeasurementJdbcRepository jdbc;
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		SeriesCache seriesCache = mock(SeriesCache.class);
+		when(seriesCache.getAll(any())).thenReturn(List.of(series));
+		jdbc = mock(MeasurementJdbcRepository.class);
+		when(jdbc.valueRange(series.getId(), FROM, TO))
+				.thenReturn(Optional.of(new MeasurementJdbcRepository.ValueRange(-10, 20)));
+		when(jdbc.correctChunk(any(), any(), any(), any(), anyInt(), anyDouble(), anyDouble(), any()))
+				.thenReturn(new MeasurementJdbcRepository.Chunk(3, FROM, TO, UUID.randomUUID()));
+		MeasurementChunkRepository chunks = mock(MeasurementChunkRepository.class);
+		when(chunks.coldBefore()).thenReturn(FROM.minusDays(1));
+		service = new MeasurementService(mock(MeasurementRepository.class), jdbc, chunks, seriesCache,
+				mock(RollupService.class), mock(HotWindowStore.class),
+				new MeasurementMetrics(new SimpleMeterRegistry(), false), mock(EntityManager.class),
+				mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void correctionWithinTheBoundsIsApplied() {
+		assertEquals(3, service.correctRange(series.getId(), FROM, TO, 2, 50));
+		verify(jdbc).correctChunk(eq(series.getId()), eq(FROM), eq(TO), any(), anyInt(), eq(2.0), eq(50.0), any());
+	}
+
+	@Test
+	void correctionPushingTheMaximumOverTheBoundIsRejected() {
+		assertRejected(2, 61);
+	}
+
+	@Test
+	void negativeScaleChecksTheSwappedExtremes() {
+		// -10 becomes 110, 20 becomes -100.
+		assertRejected(-7, 40);
+	}
+
+	@Test
+	void correctionPushingTheMinimumUnderTheBoundIsRejected() {
+		assertRejected(1, -91);
+	}
+
+	@Test
+	void overflowingCorrectionIsRejected() {
+		series.setMinValue(-Double.MAX_VALUE);
+		series.setMaxValue(Double.MAX_VALUE);
+		assertRejected(Double.MAX_VALUE, 0);
+	}
+
+	@Test
+	void emptyRangeIsNotChecked() {
+		when(jdbc.valueRange(series.getId(), FROM, TO)).thenReturn(Optional.empty());
+		when(jdbc.correctChunk(any(), any(), any(), any(), anyInt(), anyDouble(), anyDouble(), any()))
+				.thenReturn(new MeasurementJdbcRepository.Chunk(0, null, null, null));
+		assertEquals(0, service.correctRange(series.getId(), FROM, TO, 1000, 0));
+	}
+
+	private void assertRejected(double scale, double offset) {
+		assertThrows(IllegalArgumentException.class,
+				() -> service.correctRange(series.getId(), FROM, TO, scale, offset));
+		verify(jdbc, never()).correctChunk(any(), any(), any(), any(), anyInt(), anyDouble(), anyDouble(), any());
+	}
+}
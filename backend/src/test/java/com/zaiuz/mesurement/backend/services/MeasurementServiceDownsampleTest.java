@@ -0,0 +1,76 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceDownsampleTest {
+	private static final UUID SERIES = UUID.randomUUID();
+	private static final OffsetDateTime FROM = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+	private static final OffsetDateTime TO = FROM.plusDays(1);
+
+	private MeasurementJdbcRepository jdbc;
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		SeriesCache seriesCache = mock(SeriesCache.class);
+		when(seriesCache.getAll(anyCollection())).thenReturn(List.of(Series.builder().id(SERIES).build()));
+		jdbc = mock(MeasurementJdbcRepository.class);
+		when(jdbc.aggregateBuckets(anyCollection(), any(), any(), any())).thenReturn(Map.of());
+		service = new MeasurementService(mock(MeasurementRepository.class), jdbc,
+				mock(MeasurementChunkRepository.class), seriesCache, mock(RollupService.class),
+				mock(HotWindowStore.class), new MeasurementMetrics(new SimpleMeterRegistry(), false),
+				mock(EntityManager.class), mock(ApplicationEventPublisher.class),
+				mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void explicitBucketWithinTheLimitIsUsedAsIs() {
+		service.downsample(List.of(SERIES), FROM, TO, 1440, Duration.ofMinutes(1), MeasurementService.MODE_MINMAX);
+		verify(jdbc).aggregateBuckets(anyCollection(), eq(FROM), eq(TO), eq(Duration.ofMinutes(1)));
+	}
+
+	@Test
+	void explicitBucketOverTheLimitIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> service.downsample(List.of(SERIES), FROM, TO, 1000,
+				Duration.ofMinutes(1), MeasurementService.MODE_MINMAX));
+		verify(jdbc, never()).aggregateBuckets(anyCollection(), any(), any(), any());
+	}
+
+	@Test
+	void bucketClampedToAMillisecondIsCountedAfterClamping() {
+		assertThrows(IllegalArgumentException.class, () -> service.downsample(List.of(SERIES), FROM,
+				FROM.plusSeconds(20), 10_000, Duration.ofNanos(1), MeasurementService.MODE_MINMAX));
+	}
+
+	@Test
+	void derivedBucketStaysWithinMaxPoints() {
+		assertEquals(1, service.downsample(List.of(SERIES), FROM, TO, 1000, null,
+				MeasurementService.MODE_MINMAX).size());
+		verify(jdbc).aggregateBuckets(anyCollection(), eq(FROM), eq(TO), eq(Duration.ofSeconds(86, 400_000_000)));
+	}
+}
@@ -0,0 +1,108 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.formats.CsvMeasurementWriter;
+import com.zaiuz.mesurement.backend.formats.MeasurementExportWriter;
+import com.zaiuz.mesurement.backend.formats.NdjsonMeasurementWriter;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import com.zaiuz.mesurement.backend.timeseries.ChunkPointCursor;
+import com.zaiuz.mesurement.backend.timeseries.EpochMicros;
+import com.zaiuz.mesurement.backend.timeseries.GorillaCodec;
+import com.zaiuz.mesurement.backend.timeseries.PointBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceExportTest {
+	private static final Series SERIES = Series.builder().id(UUID.randomUUID()).build();
+	private static final OffsetDateTime FROM = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+	private static final OffsetDateTime TO = FROM.plusDays(1);
+	private static final UUID ROW_ID = UUID.randomUUID();
+
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		SeriesCache seriesCache = mock(SeriesCache.class);
+		when(seriesCache.getAll(anyCollection())).thenReturn(List.of(SERIES));
+
+		PointBuffer compacted = new PointBuffer();
+		compacted.accept(EpochMicros.of(FROM.plusHours(1)), 1.5);
+		compacted.accept(EpochMicros.of(FROM.plusHours(3)), 3.5);
+		ChunkPointCursor.EncodedChunk chunk = new ChunkPointCursor.EncodedChunk(SERIES.getId(),
+				compacted.timestamp(0), compacted.timestamp(1), GorillaCodec.encode(compacted));
+		MeasurementChunkRepository chunks = mock(MeasurementChunkRepository.class);
+		when(chunks.cursor(anyCollection(), anyLong(), anyLong(), any())).thenAnswer(invocation -> invocation
+				.<Function<ChunkPointCursor, Object>>getArgument(3)
+				.apply(new ChunkPointCursor(List.of(chunk).iterator(), invocation.getArgument(1),
+						invocation.getArgument(2))));
+
+		MeasurementRepository rows = mock(MeasurementRepository.class);
+		when(rows.streamBySeriesIds(anyCollection(), any(), any())).thenAnswer(invocation -> Stream.of(
+				Measurement.builder().id(ROW_ID).series(SERIES).value(2.5).timestamp(FROM.plusHours(2)).build()));
+
+		service = new MeasurementService(rows, mock(MeasurementJdbcRepository.class), chunks, seriesCache,
+				mock(RollupService.class), mock(HotWindowStore.class),
+				new MeasurementMetrics(new SimpleMeterRegistry(), false), mock(EntityManager.class),
+				mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void csvExportWritesCompactedPointsWithAnEmptyId() {
+		assertEquals("id,series_id,timestamp,value\n"
+						+ "," + SERIES.getId() + "," + FROM.plusHours(1) + ",1.5\n"
+						+ ROW_ID + "," + SERIES.getId() + "," + FROM.plusHours(2) + ",2.5\n"
+						+ "," + SERIES.getId() + "," + FROM.plusHours(3) + ",3.5\n",
+				export(new CsvMeasurementWriter()));
+	}
+
+	@Test
+	void ndjsonExportWritesCompactedPointsWithANullId() {
+		assertEquals("{\"id\":null,\"seriesId\":\"" + SERIES.getId() + "\",\"timestamp\":\"" + FROM.plusHours(1)
+						+ "\",\"value\":1.5}\n"
+						+ "{\"id\":\"" + ROW_ID + "\",\"seriesId\":\"" + SERIES.getId() + "\",\"timestamp\":\""
+						+ FROM.plusHours(2) + "\",\"value\":2.5}\n"
+						+ "{\"id\":null,\"seriesId\":\"" + SERIES.getId() + "\",\"timestamp\":\"" + FROM.plusHours(3)
+						+ "\",\"value\":3.5}\n",
+				export(new NdjsonMeasurementWriter()));
+	}
+
+	private String export(MeasurementExportWriter exportWriter) {
+		StringWriter out = new StringWriter();
+		try {
+			exportWriter.writeHeader(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		service.export(List.of(SERIES.getId()), FROM, TO, m -> {
+			try {
+				exportWriter.write(out, m);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		return out.toString();
+	}
+}
@@ -0,0 +1,133 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.domain.ConflictPolicy;
+import com.zaiuz.mesurement.backend.domain.Measurement;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.events.MeasurementRangeChangedEvent;
+import com.zaiuz.mesurement.backend.events.MeasurementsAppendedEvent;
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementJdbcRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MeasurementServiceUpsertTest {
+	private static final Series SERIES = Series.builder().id(UUID.randomUUID()).build();
+	private static final OffsetDateTime T0 = OffsetDateTime.parse("2025-01-01T00:00:00Z");
+
+	private MeasurementJdbcRepository jdbc;
+	private ApplicationEventPublisher events;
+	private MeasurementService service;
+
+	@BeforeEach
+	void setUp() {
+		jdbc = mock(MeasurementJdbcRepository.class);
+		when(jdbc.upsertAll(anyList(), anyBoolean())).thenAnswer(invocation ->
+				new MeasurementJdbcRepository.UpsertResult(new ArrayList<>(invocation.<List<Measurement>>getArgument(0)),
+						new ArrayList<>(), new ArrayList<>()));
+		MeasurementChunkRepository chunks = mock(MeasurementChunkRepository.class);
+		when(chunks.coldBefore()).thenReturn(T0.minusDays(1));
+		events = mock(ApplicationEventPublisher.class);
+		service = new MeasurementService(mock(MeasurementRepository.class), jdbc, chunks, mock(SeriesCache.class),
+				mock(RollupService.class), mock(HotWindowStore.class),
+				new MeasurementMetrics(new SimpleMeterRegistry(), false), mock(EntityManager.class), events,
+				mock(PlatformTransactionManager.class), 5000);
+	}
+
+	@Test
+	void ignoreKeepsTheFirstOfInBatchDuplicates() {
+		Measurement first = point(0, 1);
+		Measurement other = point(1, 2);
+		Measurement duplicate = point(0, 3);
+
+		List<Measurement> skipped = service.writePrepared(List.of(first, other, duplicate), ConflictPolicy.IGNORE);
+
+		assertEquals(List.of(duplicate), skipped);
+		verify(jdbc).upsertAll(List.of(first, other), false);
+	}
+
+	@Test
+	void updateKeepsTheLastOfInBatchDuplicatesInPlace() {
+		Measurement first = point(0, 1);
+		Measurement other = point(1, 2);
+		Measurement last = point(0, 3);
+
+		List<Measurement> skipped = service.writePrepared(List.of(first, other, last), ConflictPolicy.UPDATE);
+
+		assertEquals(List.of(first), skipped);
+		verify(jdbc).upsertAll(List.of(last, other), true);
+	}
+
+	@Test
+	void ignoreReportsConflictsWithExistingRowsAsSkipped() {
+		Measurement existing = point(0, 1);
+		Measurement fresh = point(1, 2);
+		when(jdbc.upsertAll(anyList(), anyBoolean())).thenReturn(new MeasurementJdbcRepository.UpsertResult(
+				new ArrayList<>(List.of(fresh)), new ArrayList<>(), new ArrayList<>(List.of(existing))));
+
+		List<Measurement> skipped = service.writePrepared(List.of(existing, fresh), ConflictPolicy.IGNORE);
+
+		assertEquals(List.of(existing), skipped);
+		ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+		verify(events).publishEvent(published.capture());
+		assertEquals(List.of(fresh), ((MeasurementsAppendedEvent) published.getValue()).getMeasurements());
+	}
+
+	@Test
+	void updatedExistingRowsRebuildTheirRange() {
+		Measurement early = point(0, 1);
+		Measurement late = point(10, 2);
+		Measurement fresh = point(5, 3);
+		when(jdbc.upsertAll(anyList(), anyBoolean())).thenReturn(new MeasurementJdbcRepository.UpsertResult(
+				new ArrayList<>(List.of(fresh)), new ArrayList<>(List.of(early, late)), new ArrayList<>()));
+
+		List<Measurement> skipped = service.writePrepared(List.of(early, fresh, late), ConflictPolicy.UPDATE);
+
+		assertEquals(List.of(), skipped);
+		ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+		verify(events, times(2)).publishEvent(published.capture());
+		assertEquals(List.of(fresh), ((MeasurementsAppendedEvent) published.getAllValues().get(0)).getMeasurements());
+		MeasurementRangeChangedEvent changed =
+				assertInstanceOf(MeasurementRangeChangedEvent.class, published.getAllValues().get(1));
+		assertEquals(SERIES.getId(), changed.getSeriesId());
+		assertEquals(early.getTimestamp(), changed.getFrom());
+		assertEquals(late.getTimestamp(), changed.getTo());
+	}
+
+	@Test
+	void batchWithOnlyConflictsPublishesNothing() {
+		Measurement existing = point(0, 1);
+		when(jdbc.upsertAll(anyList(), anyBoolean())).thenReturn(new MeasurementJdbcRepository.UpsertResult(
+				new ArrayList<>(), new ArrayList<>(), new ArrayList<>(List.of(existing))));
+
+		assertEquals(List.of(existing), service.writePrepared(List.of(existing), ConflictPolicy.IGNORE));
+		verify(events, never()).publishEvent(any());
+	}
+
+	private static Measurement point(int second, double value) {
+		OffsetDateTime timestamp = T0.plusSeconds(second);
+		return Measurement.builder().id(UUID.randomUUID()).series(SERIES).value(value).timestamp(timestamp)
+				.createdBy("test").createdAt(timestamp).updatedAt(timestamp).build();
+	}
+}
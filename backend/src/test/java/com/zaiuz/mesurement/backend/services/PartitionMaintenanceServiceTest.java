@@ -0,0 +1,60 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.repositories.MeasurementChunkRepository;
+import com.zaiuz.mesurement.backend.repositories.MeasurementShards;
+import com.zaiuz.mesurement.backend.repositories.PartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionMaintenanceServiceTest {
+	private PartitionRepository partitions;
+	private SeriesChangeTracker changeTracker;
+	private YearMonth current;
+
+	@BeforeEach
+	void setUp() {
+		partitions = mock(PartitionRepository.class);
+		when(partitions.isPartitioned()).thenReturn(true);
+		changeTracker = mock(SeriesChangeTracker.class);
+		current = YearMonth.now(ZoneOffset.UTC);
+	}
+
+	@Test
+	void expiredRowsOfTheDefaultPartitionAreDeletedByTimestamp() {
+		when(partitions.findMonthlyPartitions()).thenReturn(List.of());
+		when(partitions.deleteDefaultBefore(any())).thenReturn(5);
+
+		service(12).maintain();
+
+		OffsetDateTime cutoff = current.minusMonths(12).atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+		verify(partitions).deleteDefaultBefore(cutoff);
+		verify(changeTracker).invalidateAll();
+	}
+
+	@Test
+	void nothingExpiresWithoutRetention() {
+		service(0).maintain();
+
+		verify(partitions).createMonth(current);
+		verify(partitions, never()).deleteDefaultBefore(any());
+		verify(changeTracker, never()).invalidateAll();
+	}
+
+	private PartitionMaintenanceService service(int retentionMonths) {
+		MeasurementShards shards = mock(MeasurementShards.class);
+		when(shards.count()).thenReturn(1);
+		return new PartitionMaintenanceService(partitions, shards, mock(MeasurementChunkRepository.class),
+				changeTracker, 3, retentionMonths);
+	}
+}
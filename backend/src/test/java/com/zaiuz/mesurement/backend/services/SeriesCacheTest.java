@@ -0,0 +1,86 @@
+package com.zaiuz.mesurement.backend.services;
+
+import com.zaiuz.mesurement.backend.config.PrimaryReads;
+import com.zaiuz.mesurement.backend.domain.Series;
+import com.zaiuz.mesurement.backend.repositories.SeriesChangeRepository;
+import com.zaiuz.mesurement.backend.repositories.SeriesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeriesCacheTest {
+	private static final UUID ID = UUID.randomUUID();
+
+	private SeriesRepository repository;
+	private SeriesChangeRepository changes;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(SeriesRepository.class);
+		when(repository.findById(ID)).thenReturn(Optional.of(Series.builder().id(ID).build()));
+		changes = mock(SeriesChangeRepository.class);
+		when(changes.seriesVersion()).thenReturn(1L);
+	}
+
+	@Test
+	void entriesAreKeptWhileTheVersionStands() {
+		SeriesCache cache = cache(Duration.ZERO);
+
+		cache.get(ID);
+		cache.get(ID);
+
+		verify(repository, times(1)).findById(ID);
+	}
+
+	@Test
+	void aNewVersionFromAnotherInstanceDropsTheEntries() {
+		SeriesCache cache = cache(Duration.ZERO);
+		cache.get(ID);
+
+		when(changes.seriesVersion()).thenReturn(2L);
+		cache.get(ID);
+
+		verify(repository, times(2)).findById(ID);
+	}
+
+	@Test
+	void syncToReloadsBeforeTheRefreshIsDue() {
+		SeriesCache cache = cache(Duration.ofHours(1));
+		cache.get(ID);
+
+		when(changes.seriesVersion()).thenReturn(2L);
+		cache.get(ID);
+		verify(repository, times(1)).findById(ID);
+
+		assertEquals(2L, cache.syncTo(2L));
+		cache.get(ID);
+		verify(repository, times(2)).findById(ID);
+	}
+
+	@Test
+	void syncToAnOlderVersionKeepsTheEntries() {
+		SeriesCache cache = cache(Duration.ofHours(1));
+		cache.get(ID);
+
+		cache.syncTo(1L);
+		cache.get(ID);
+
+		verify(repository, times(1)).findById(ID);
+	}
+
+	private SeriesCache cache(Duration refresh) {
+		return new SeriesCache(repository, changes, new PrimaryReads(mock(PlatformTransactionManager.class), false),
+				new SimpleMeterRegistry(), 100, refresh);
+	}
+}
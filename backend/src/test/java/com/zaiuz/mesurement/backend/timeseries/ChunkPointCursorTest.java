@@ -0,0 +1,52 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ChunkPointCursorTest {
+
+	@Test
+	void mergesOverlappingChunksInTimestampOrderWithinRange() {
+		UUID a = new UUID(0, 1);
+		UUID b = new UUID(0, 2);
+		List<ChunkPointCursor.EncodedChunk> chunks = List.of(
+				chunk(a, 0, 10, 20, 30),
+				chunk(b, 5, 15, 25),
+				chunk(a, 100, 110));
+
+		ChunkPointCursor cursor = new ChunkPointCursor(chunks.iterator(), 10, 100);
+		PointBuffer seen = new PointBuffer();
+		StringBuilder series = new StringBuilder();
+		for (; cursor.hasPoint(); cursor.next()) {
+			seen.accept(cursor.timestamp(), cursor.value());
+			series.append(cursor.seriesId().equals(a) ? 'a' : 'b');
+		}
+
+		long[] expected = {10, 15, 20, 25, 30, 100};
+		assertEquals(expected.length, seen.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], seen.timestamp(i));
+			assertEquals(expected[i] / 10.0, seen.value(i));
+		}
+		assertEquals("ababaa", series.toString());
+	}
+
+	@Test
+	void emptyCursorHasNoPoints() {
+		assertFalse(ChunkPointCursor.empty().hasPoint());
+	}
+
+	private static ChunkPointCursor.EncodedChunk chunk(UUID seriesId, long... timestamps) {
+		PointBuffer points = new PointBuffer();
+		for (long t : timestamps) {
+			points.accept(t, t / 10.0);
+		}
+		return new ChunkPointCursor.EncodedChunk(seriesId, timestamps[0], timestamps[timestamps.length - 1],
+				GorillaCodec.encode(points));
+	}
+}
@@ -0,0 +1,82 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DDSketchTest {
+
+	@Test
+	void quantilesStayWithinRelativeAccuracy() {
+		Random random = new Random(7);
+		double[] values = new double[100_000];
+		DDSketch sketch = new DDSketch();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.exp(random.nextGaussian() * 2) * (random.nextBoolean() ? 1 : -1);
+			sketch.add(values[i]);
+		}
+		Arrays.sort(values);
+
+		for (double q : new double[]{0.01, 0.25, 0.5, 0.95, 0.99}) {
+			double exact = values[(int) (q * (values.length - 1))];
+			double estimate = sketch.quantile(q);
+			assertTrue(Math.abs(estimate - exact) <= Math.abs(exact) * DDSketch.RELATIVE_ACCURACY + 1e-12,
+					"q=" + q + " exact=" + exact + " estimate=" + estimate);
+		}
+	}
+
+	@Test
+	void mergedSketchMatchesSingleSketch() {
+		DDSketch whole = new DDSketch();
+		DDSketch left = new DDSketch();
+		DDSketch right = new DDSketch();
+		for (int i = -500; i < 1500; i++) {
+			double value = i * 0.37;
+			whole.add(value);
+			(i < 500 ? left : right).add(value);
+		}
+		left.merge(right);
+
+		assertEquals(whole.count(), left.count());
+		for (double q = 0; q <= 1.0; q += 0.05) {
+			assertEquals(whole.quantile(q), left.quantile(q));
+		}
+	}
+
+	@Test
+	void survivesEncoding() {
+		DDSketch sketch = new DDSketch();
+		for (int i = 0; i < 1000; i++) {
+			sketch.add(Math.sin(i) * 100);
+		}
+		DDSketch decoded = DDSketch.decode(sketch.encode());
+
+		assertEquals(sketch.count(), decoded.count());
+		assertEquals(sketch.quantile(0.5), decoded.quantile(0.5));
+		assertEquals(sketch.quantile(0.99), decoded.quantile(0.99));
+		assertEquals(0, DDSketch.decode(new byte[0]).count());
+	}
+
+	@Test
+	void mergedMomentsMatchSinglePass() {
+		Moments whole = new Moments();
+		Moments left = new Moments();
+		Moments right = new Moments();
+		for (int i = 0; i < 1000; i++) {
+			double value = 20 + Math.sin(i / 10.0) * 5;
+			whole.add(value);
+			(i % 3 == 0 ? left : right).add(value);
+		}
+		left.merge(right);
+
+		assertEquals(whole.count(), left.count());
+		assertEquals(whole.mean(), left.mean(), 1e-9);
+		assertEquals(whole.variance(), left.variance(), 1e-9);
+		assertEquals(whole.min(), left.min());
+		assertEquals(whole.max(), left.max());
+	}
+}
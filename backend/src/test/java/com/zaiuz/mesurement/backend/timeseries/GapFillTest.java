@@ -0,0 +1,30 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class GapFillTest {
+	private static final double N = Double.NaN;
+
+	@Test
+	void nullLeavesGaps() {
+		double[] values = {N, 1, N, 3, N};
+		GapFill.NULL.apply(values);
+		assertArrayEquals(new double[]{N, 1, N, 3, N}, values);
+	}
+
+	@Test
+	void previousCarriesLastValueForward() {
+		double[] values = {N, 1, N, N, 4, N};
+		GapFill.PREVIOUS.apply(values);
+		assertArrayEquals(new double[]{N, 1, 1, 1, 4, 4}, values);
+	}
+
+	@Test
+	void linearInterpolatesBetweenKnownValuesOnly() {
+		double[] values = {N, 1, N, N, 4, N};
+		GapFill.LINEAR.apply(values);
+		assertArrayEquals(new double[]{N, 1, 2, 3, 4, N}, values, 1e-12);
+	}
+}
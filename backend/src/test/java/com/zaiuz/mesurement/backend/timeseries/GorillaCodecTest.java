@@ -0,0 +1,75 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GorillaCodecTest {
+
+	@Test
+	void roundTripsIrregularPointsExactly() {
+		Random random = new Random(11);
+		PointBuffer points = new PointBuffer();
+		long timestamp = 1_700_000_000_000_000L;
+		for (int i = 0; i < 10_000; i++) {
+			timestamp += 1 + (random.nextInt(10) == 0 ? random.nextInt(Integer.MAX_VALUE) * 100L : random.nextInt(5_000_000));
+			double value = switch (i % 5) {
+				case 0 -> random.nextGaussian() * 1e6;
+				case 1 -> -0.0;
+				case 2 -> Double.MIN_VALUE;
+				default -> Math.round(random.nextDouble() * 100) / 10.0;
+			};
+			points.accept(timestamp, value);
+		}
+
+		PointBuffer decoded = new PointBuffer();
+		GorillaCodec.decode(GorillaCodec.encode(points), decoded);
+
+		assertEquals(points.size(), decoded.size());
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(points.timestamp(i), decoded.timestamp(i));
+			assertEquals(Double.doubleToRawLongBits(points.value(i)), Double.doubleToRawLongBits(decoded.value(i)));
+		}
+	}
+
+	@Test
+	void regularSeriesCompressesWell() {
+		PointBuffer points = new PointBuffer();
+		for (int i = 0; i < 86_400; i++) {
+			points.accept(1_700_000_000_000_000L + i * 1_000_000L, 20 + Math.round(Math.sin(i / 600.0) * 50) / 10.0);
+		}
+
+		byte[] data = GorillaCodec.encode(points);
+
+		assertEquals(points.size(), GorillaCodec.count(data));
+		assertTrue(data.length < points.size() * 4, "bytes=" + data.length);
+	}
+
+	@Test
+	void handlesEmptyAndSinglePointChunks() {
+		PointBuffer single = new PointBuffer();
+		single.accept(42, 1.5);
+		PointBuffer decoded = new PointBuffer();
+
+		GorillaCodec.decode(GorillaCodec.encode(new PointBuffer()), decoded);
+		assertEquals(0, decoded.size());
+
+		GorillaCodec.decode(GorillaCodec.encode(single), decoded);
+		assertEquals(1, decoded.size());
+		assertEquals(42, decoded.timestamp(0));
+		assertEquals(1.5, decoded.value(0));
+	}
+
+	@Test
+	void rejectsUnorderedTimestamps() {
+		PointBuffer points = new PointBuffer();
+		points.accept(10, 1);
+		points.accept(10, 2);
+
+		assertThrows(IllegalArgumentException.class, () -> GorillaCodec.encode(points));
+	}
+}
@@ -0,0 +1,52 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbTest {
+
+	@Test
+	void keepsEveryPointBelowThreshold() {
+		PointBuffer points = buffer(5);
+		assertArrayEquals(new int[]{0, 1, 2, 3, 4}, Lttb.select(points, 10));
+	}
+
+	@Test
+	void keepsEndpointsAndRequestedCount() {
+		PointBuffer points = buffer(1000);
+		int[] selected = Lttb.select(points, 50);
+
+		assertEquals(50, selected.length);
+		assertEquals(0, selected[0]);
+		assertEquals(999, selected[49]);
+		for (int i = 1; i < selected.length; i++) {
+			assertTrue(selected[i] > selected[i - 1]);
+		}
+	}
+
+	@Test
+	void keepsIsolatedSpike() {
+		PointBuffer points = new PointBuffer();
+		for (int i = 0; i < 1000; i++) {
+			points.accept(i * 1_000_000L, i == 437 ? 100.0 : 1.0);
+		}
+		int[] selected = Lttb.select(points, 20);
+
+		boolean found = false;
+		for (int index : selected) {
+			found |= index == 437;
+		}
+		assertTrue(found);
+	}
+
+	private static PointBuffer buffer(int n) {
+		PointBuffer points = new PointBuffer();
+		for (int i = 0; i < n; i++) {
+			points.accept(1_700_000_000_000_000L + i * 1_000_000L, Math.sin(i / 10.0));
+		}
+		return points;
+	}
+}
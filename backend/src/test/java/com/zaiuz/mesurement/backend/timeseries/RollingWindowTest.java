@@ -0,0 +1,41 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollingWindowTest {
+
+	@Test
+	void aggregatesMatchBruteForceOverTheWindow() {
+		Random random = new Random(3);
+		long length = 10_000;
+		RollingWindow window = new RollingWindow(length);
+		long[] timestamps = new long[2_000];
+		double[] values = new double[timestamps.length];
+		long t = 0;
+		for (int i = 0; i < timestamps.length; i++) {
+			t += 1 + random.nextInt(1_500);
+			timestamps[i] = t;
+			values[i] = random.nextInt(100);
+			window.add(t, values[i]);
+
+			int count = 0;
+			double sum = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int j = i; j >= 0 && timestamps[j] > t - length; j--) {
+				count++;
+				sum += values[j];
+				min = Math.min(min, values[j]);
+				max = Math.max(max, values[j]);
+			}
+			assertEquals(count, window.count());
+			assertEquals(sum / count, window.mean(), 1e-9);
+			assertEquals(min, window.min());
+			assertEquals(max, window.max());
+		}
+	}
+}
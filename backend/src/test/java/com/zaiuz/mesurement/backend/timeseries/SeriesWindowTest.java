@@ -0,0 +1,80 @@
+package com.zaiuz.mesurement.backend.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeriesWindowTest {
+
+	@Test
+	void keepsLatePointsInOrderAndIgnoresDuplicates() {
+		SeriesWindow window = new SeriesWindow(16, 1000);
+		window.markLoaded(0);
+		UUID late = UUID.randomUUID();
+		window.insert(UUID.randomUUID(), 10, 1.0);
+		window.insert(UUID.randomUUID(), 30, 3.0);
+		window.insert(late, 20, 2.0);
+		window.insert(late, 20, 2.5);
+
+		List<Long> timestamps = new ArrayList<>();
+		List<Double> values = new ArrayList<>();
+		window.read(0, 100, (id, micros, value) -> {
+			timestamps.add(micros);
+			values.add(value);
+		});
+		assertEquals(List.of(10L, 20L, 30L), timestamps);
+		assertEquals(List.of(1.0, 2.5, 3.0), values);
+	}
+
+	@Test
+	void evictionMovesCoverageForward() {
+		SeriesWindow window = new SeriesWindow(16, 1000);
+		window.markLoaded(0);
+		for (int i = 0; i < 100; i++) {
+			window.insert(UUID.randomUUID(), i, i);
+		}
+		window.evictBefore(50);
+
+		assertEquals(50, window.size());
+		assertFalse(window.covers(49));
+		assertTrue(window.covers(50));
+	}
+
+	@Test
+	void dropsOldestPointsWhenFull() {
+		SeriesWindow window = new SeriesWindow(16, 64);
+		window.markLoaded(0);
+		for (int i = 0; i < 200; i++) {
+			window.insert(UUID.randomUUID(), i, i);
+		}
+
+		assertTrue(window.size() <= 64);
+		assertFalse(window.covers(0));
+		assertTrue(window.covers(199 - window.size() + 1));
+		assertEquals(1, window.read(199, 199, (id, micros, value) -> assertEquals(199, micros)));
+	}
+
+	@Test
+	void appliesAppendsBufferedDuringLoad() {
+		SeriesWindow window = new SeriesWindow(16, 1000);
+		window.append(UUID.randomUUID(), 5, 0.5);
+		window.beginLoading();
+		UUID both = UUID.randomUUID();
+		window.insert(UUID.randomUUID(), 10, 1.0);
+		window.append(both, 20, 2.0);
+		window.append(UUID.randomUUID(), 30, 3.0);
+		window.insert(both, 20, 2.0);
+		window.markLoaded(0);
+		window.append(UUID.randomUUID(), 40, 4.0);
+
+		List<Long> timestamps = new ArrayList<>();
+		window.read(0, 100, (id, micros, value) -> timestamps.add(micros));
+		assertEquals(List.of(10L, 20L, 30L, 40L), timestamps);
+	}
+}
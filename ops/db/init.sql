@@ -29,19 +29,97 @@ CREATE TABLE series (
     CONSTRAINT chk_range CHECK (max_value > min_value)
 );
 
--- Pomiary
+-- Pomiary, partycjonowane miesięcznie po czasie pomiaru.
+-- Backend (PartitionMaintenanceService) zakłada partycje na kolejne miesiące
+-- i usuwa te, które wypadły poza okres retencji.
 CREATE TABLE measurements (
-    id          UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    id          UUID NOT NULL DEFAULT gen_random_uuid(),
     series_id   UUID NOT NULL REFERENCES series(id) ON DELETE CASCADE,
     value       DOUBLE PRECISION NOT NULL,
     timestamp   TIMESTAMPTZ NOT NULL DEFAULT now(),
     created_by  TEXT NOT NULL DEFAULT 'system',
     created_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
-    updated_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+    updated_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Partycja dla pomiarów spoza założonych miesięcy. Przy zakładaniu partycji miesiąca backend
+-- przenosi z niej wiersze tego miesiąca, a wiersze starsze niż okres retencji usuwa.
+CREATE TABLE measurements_default PARTITION OF measurements DEFAULT;
+
+-- Partycje od poprzedniego miesiąca do trzech miesięcy naprzód
+DO $$
+DECLARE
+    m DATE := date_trunc('month', now() AT TIME ZONE 'UTC') - INTERVAL '1 month';
+BEGIN
+    WHILE m <= date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months' LOOP
+        EXECUTE format(
+            'CREATE TABLE measurements_%s PARTITION OF measurements FOR VALUES FROM (%L) TO (%L)',
+            to_char(m, '"y"YYYY"m"MM'), m::timestamp AT TIME ZONE 'UTC', (m + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC');
+        m := m + INTERVAL '1 month';
+    END LOOP;
+END$$;
+
+-- Indeks dla zapytań po czasie i serii; unikalny, bo (seria, znacznik czasu) jest kluczem
+-- idempotentnego zapisu (INSERT ... ON CONFLICT). Zawiera klucz partycjonowania, więc
+-- PostgreSQL może go wymusić na tabeli partycjonowanej.
+CREATE UNIQUE INDEX idx_measurements_series_time ON measurements(series_id, timestamp);
+
+-- Agregaty pomiarów (minuta / godzina / dzień), utrzymywane przyrostowo przez backend
+CREATE TABLE measurement_rollups (
+    series_id   UUID NOT NULL REFERENCES series(id) ON DELETE CASCADE,
+    resolution  TEXT NOT NULL,
+    bucket      TIMESTAMPTZ NOT NULL,
+    count       BIGINT NOT NULL,
+    min_value   DOUBLE PRECISION NOT NULL,
+    max_value   DOUBLE PRECISION NOT NULL,
+    sum_value   DOUBLE PRECISION NOT NULL,
+    first_value DOUBLE PRECISION NOT NULL,
+    first_ts    TIMESTAMPTZ NOT NULL,
+    last_value  DOUBLE PRECISION NOT NULL,
+    last_ts     TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (series_id, resolution, bucket)
+);
+
+-- Statystyki godzinowe (momenty Welforda + szkic kwantyli DDSketch), utrzymywane przez backend.
+-- Dla danych sprzed ich wprowadzenia: POST /api/series/{id}/stats/rebuild
+CREATE TABLE series_stat_buckets (
+    series_id   UUID NOT NULL REFERENCES series(id) ON DELETE CASCADE,
+    bucket      TIMESTAMPTZ NOT NULL,
+    count       BIGINT NOT NULL,
+    mean        DOUBLE PRECISION NOT NULL,
+    m2          DOUBLE PRECISION NOT NULL,
+    min_value   DOUBLE PRECISION NOT NULL,
+    max_value   DOUBLE PRECISION NOT NULL,
+    sketch      BYTEA NOT NULL,
+    PRIMARY KEY (series_id, bucket)
+);
+
+-- Wersje zmian danych na serię i godzinę, z których backend wylicza ETagi odpowiedzi.
+-- Zapisywane w tej samej transakcji co zmiana, więc widzą je wszystkie instancje i repliki.
+-- Godzina 'infinity' oznacza zmianę całej serii, '-infinity' godziny starsze niż horyzont
+-- (measurement.http-cache.horizon) zwinięte w jeden wiersz; seria 0000… dotyczy wszystkich serii.
+CREATE SEQUENCE series_change_seq;
+CREATE TABLE series_changes (
+    series_id   UUID NOT NULL,
+    hour        TIMESTAMPTZ NOT NULL,
+    version     BIGINT NOT NULL,
+    PRIMARY KEY (series_id, hour)
 );
 
--- Indeks dla zapytań po czasie i serii
-CREATE INDEX idx_measurements_series_time ON measurements(series_id, timestamp);
+-- Skompresowane bloki starych pomiarów: jedna seria i jedno okno czasu na wiersz, znaczniki
+-- czasu jako delta-of-delta, wartości kodowane XOR (Gorilla). Wypełniane przez zadanie kompakcji,
+-- które przenosi tu wiersze z measurements. Dane są już skompresowane, więc bez pglz.
+CREATE TABLE measurement_chunks (
+    series_id   UUID NOT NULL REFERENCES series(id) ON DELETE CASCADE,
+    chunk_start TIMESTAMPTZ NOT NULL,
+    first_ts    TIMESTAMPTZ NOT NULL,
+    last_ts     TIMESTAMPTZ NOT NULL,
+    point_count INTEGER NOT NULL,
+    data        BYTEA NOT NULL,
+    PRIMARY KEY (series_id, chunk_start)
+);
+ALTER TABLE measurement_chunks ALTER COLUMN data SET STORAGE EXTERNAL;
 
 -- Dane przykładowe
 INSERT INTO users (username, password, role) VALUES ('admin', '$2a$12$XY0Kc0vATrMrVnLTSuOMJuXmFtdDCFCRNH8alsTgEkiOz/Wu/l.Si', 'Admin'), ('user', '$2a$12$Fcfr/dvOLbDyRhh9qsTcN.8eKLBmQbdDjUP5lLQ1J/sukiga6X0mW', 'User');
@@ -69,3 +147,14 @@ BEGIN
         d := d + INTERVAL '6 hours';
     END LOOP;
 END$$;
+
+-- Agregaty dla danych przykładowych (nowe pomiary aktualizuje już backend)
+INSERT INTO measurement_rollups (series_id, resolution, bucket, count, min_value, max_value, sum_value,
+                                 first_value, first_ts, last_value, last_ts)
+SELECT m.series_id, r.resolution, date_bin(r.width, m.timestamp, TIMESTAMPTZ 'epoch') AS bucket,
+       count(*), min(m.value), max(m.value), sum(m.value),
+       (array_agg(m.value ORDER BY m.timestamp))[1], min(m.timestamp),
+       (array_agg(m.value ORDER BY m.timestamp DESC))[1], max(m.timestamp)
+FROM measurements m
+CROSS JOIN (VALUES ('minute', INTERVAL '1 minute'), ('hour', INTERVAL '1 hour'), ('day', INTERVAL '1 day')) AS r(resolution, width)
+GROUP BY m.series_id, r.resolution, bucket;
@@ -0,0 +1,4 @@
+#!/bin/bash
+# Pozwala replice (db-replica) pobrać kopię bazową i strumieniować WAL.
+set -e
+echo "host replication all all md5" >> "$PGDATA/pg_hba.conf"
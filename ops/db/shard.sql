@@ -0,0 +1,19 @@
+-- Dodatkowy shard pomiarów (measurement.shards.urls). Trzyma wyłącznie wiersze serii
+-- przypisanych mu przez backend; serie, agregaty i bloki skompresowane zostają w bazie
+-- głównej, dlatego series_id nie ma tu klucza obcego. Usunięcie serii czyści jej wiersze
+-- na shardzie z poziomu backendu.
+CREATE TABLE measurements (
+    id          UUID NOT NULL DEFAULT gen_random_uuid(),
+    series_id   UUID NOT NULL,
+    value       DOUBLE PRECISION NOT NULL,
+    timestamp   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    created_by  TEXT NOT NULL DEFAULT 'system',
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Partycja dla pomiarów spoza założonych miesięcy; kolejne zakłada PartitionMaintenanceService
+CREATE TABLE measurements_default PARTITION OF measurements DEFAULT;
+
+CREATE UNIQUE INDEX idx_measurements_series_time ON measurements(series_id, timestamp);